@@ -0,0 +1,98 @@
+package com.queuectl.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.queuectl.model.Job;
+import com.queuectl.service.ConfigService;
+import com.queuectl.service.JobStore;
+import com.queuectl.service.PriorityAgingService;
+
+/**
+ * Not a JMH benchmark: a fixed-rate simulation of how long low-priority jobs wait while
+ * high-priority jobs keep the queue saturated, with priority aging off and on.
+ *
+ * Every tick, {@value #HIGH_PER_TICK} priority-9 jobs arrive and {@value #CAPACITY_PER_TICK}
+ * jobs are claimed and completed, so high-priority work alone fills the capacity; one
+ * priority-0 job arrives every {@value #LOW_EVERY_TICKS} ticks. Low-priority jobs still waiting
+ * at the end count with their age so far.
+ *
+ * <pre>java -cp target/benchmarks.jar com.queuectl.benchmarks.AgingSimulation [seconds] [aging-interval]</pre>
+ */
+public final class AgingSimulation {
+    private static final long TICK_MILLIS = 10;
+    private static final int HIGH_PER_TICK = 10;
+    private static final int CAPACITY_PER_TICK = 10;
+    private static final int LOW_EVERY_TICKS = 5;
+
+    private AgingSimulation() {}
+
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 10;
+        String interval = args.length > 1 ? args[1] : "100ms";
+        JobStore store = BenchmarkDatabase.open();
+        System.out.printf("%-22s %8s %8s %10s %10s %10s%n", "aging-interval", "low jobs", "served", "p50 ms", "p99 ms", "max ms");
+        for (String setting : new String[] {"0", interval}) {
+            ConfigService.getInstance().setConfig("aging-interval", setting);
+            BenchmarkDatabase.execute("DELETE FROM jobs");
+            run(store, seconds * 1000, setting.equals("0") ? "0 (off)" : setting);
+        }
+    }
+
+    private static void run(JobStore store, long durationMillis, String label) throws Exception {
+        PriorityAgingService aging = new PriorityAgingService();
+        Map<String, Long> lowEnqueued = new HashMap<>();
+        List<Long> waits = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        long end = start + durationMillis;
+        int tick = 0;
+        while (System.currentTimeMillis() < end) {
+            long tickStart = System.currentTimeMillis();
+            List<Job> arrivals = new ArrayList<>(HIGH_PER_TICK + 1);
+            for (int i = 0; i < HIGH_PER_TICK; i++) {
+                Job job = BenchmarkDatabase.newJob("true");
+                job.setPriority(9);
+                arrivals.add(job);
+            }
+            if (tick++ % LOW_EVERY_TICKS == 0) {
+                Job job = BenchmarkDatabase.newJob("true");
+                lowEnqueued.put(job.getId(), job.getCreatedAt());
+                arrivals.add(job);
+            }
+            store.enqueueBatch(arrivals);
+            aging.promote(tickStart);
+
+            for (Job job : store.claimBatch("sim", CAPACITY_PER_TICK)) {
+                Long enqueued = lowEnqueued.remove(job.getId());
+                if (enqueued != null) {
+                    waits.add(System.currentTimeMillis() - enqueued);
+                }
+            }
+            BenchmarkDatabase.execute("UPDATE jobs SET state = 'COMPLETED' WHERE state = 'PROCESSING'");
+
+            long sleep = TICK_MILLIS - (System.currentTimeMillis() - tickStart);
+            if (sleep > 0) {
+                Thread.sleep(sleep);
+            }
+        }
+
+        int served = waits.size();
+        long now = System.currentTimeMillis();
+        for (long enqueued : lowEnqueued.values()) {
+            waits.add(now - enqueued);
+        }
+        Collections.sort(waits);
+        System.out.printf("%-22s %8d %8d %10d %10d %10d%n", label, waits.size(), served,
+                percentile(waits, 0.50), percentile(waits, 0.99), waits.isEmpty() ? 0 : waits.get(waits.size() - 1));
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(p * sorted.size()) - 1));
+    }
+}
@@ -0,0 +1,80 @@
+package com.queuectl.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.queuectl.model.Job;
+import com.queuectl.model.JobState;
+import com.queuectl.service.JobStore;
+
+/**
+ * Points the forked benchmark JVM at a throwaway database and home directory. Must run before
+ * anything touches JobStore, which reads its path once.
+ */
+final class BenchmarkDatabase {
+    private static final int FILL_BATCH = 10_000;
+    private static JobStore store;
+
+    private BenchmarkDatabase() {}
+
+    static synchronized JobStore open() {
+        if (store != null) {
+            return store;
+        }
+        try {
+            Path dir = Files.createTempDirectory("queuectl-bench");
+            // Logs, wakeup ports and the PID file land under user.home.
+            System.setProperty("user.home", dir.toString());
+            System.setProperty(JobStore.DB_PROPERTY, dir.resolve("bench.db").toString());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create benchmark directory", e);
+        }
+        store = JobStore.getInstance();
+        store.initializeDatabase();
+        return store;
+    }
+
+    static Job newJob(String command) {
+        long now = System.currentTimeMillis();
+        Job job = new Job();
+        job.setId(UUID.randomUUID().toString());
+        job.setCommand(command);
+        job.setState(JobState.PENDING);
+        job.setMaxRetries(3);
+        job.setTimeout(300);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job.setNextExecutionTime(now);
+        return job;
+    }
+
+    static void fill(int rows, String command) {
+        List<Job> batch = new ArrayList<>(FILL_BATCH);
+        for (int i = 0; i < rows; i++) {
+            Job job = newJob(command);
+            job.setPriority(i % 10);
+            batch.add(job);
+            if (batch.size() == FILL_BATCH) {
+                store.enqueueBatch(batch);
+                batch.clear();
+            }
+        }
+        store.enqueueBatch(batch);
+    }
+
+    static void execute(String sql) {
+        try (Connection conn = store.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException(sql, e);
+        }
+    }
+}
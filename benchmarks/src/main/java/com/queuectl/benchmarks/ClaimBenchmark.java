@@ -0,0 +1,74 @@
+package com.queuectl.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.queuectl.model.Job;
+import com.queuectl.service.JobStore;
+
+/**
+ * Latency of {@code findAndLockNextJob} with 1 to 64 threads claiming at once, on tables of
+ * different sizes. Claimed jobs are put back between iterations so the queue never drains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ClaimBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private JobStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = BenchmarkDatabase.open();
+        BenchmarkDatabase.fill(rows, "true");
+    }
+
+    @Setup(Level.Iteration)
+    public void requeue() {
+        BenchmarkDatabase.execute("UPDATE jobs SET state = 'PENDING', worker_id = NULL, attempts = 0 " +
+                "WHERE state = 'PROCESSING'");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Job claim1() {
+        return store.findAndLockNextJob();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Job claim4() {
+        return store.findAndLockNextJob();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Job claim16() {
+        return store.findAndLockNextJob();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Job claim64() {
+        return store.findAndLockNextJob();
+    }
+}
@@ -0,0 +1,92 @@
+package com.queuectl.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.queuectl.model.Job;
+import com.queuectl.model.JobState;
+import com.queuectl.service.JobStore;
+import com.queuectl.worker.JobWorker;
+
+/**
+ * Enqueue a burst of trivial jobs and wait until real workers have run them all. Reported per
+ * job, so jobs/sec is 1000 divided by the ms/op score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class EndToEndBenchmark {
+    private static final int JOBS = 2_000;
+
+    @Param({"1", "4", "16"})
+    public int workers;
+
+    private JobStore store;
+    private List<JobWorker> running;
+    private List<Thread> threads;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = BenchmarkDatabase.open();
+        // Workers log every job; keep that out of the results.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Setup(Level.Iteration)
+    public void startWorkers() {
+        BenchmarkDatabase.execute("DELETE FROM jobs");
+        running = new ArrayList<>();
+        threads = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            JobWorker worker = new JobWorker("bench", Thread::new, null);
+            Thread thread = new Thread(worker, "bench-worker-" + i);
+            running.add(worker);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopWorkers() throws InterruptedException {
+        running.forEach(JobWorker::stop);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JOBS)
+    public int runJobs() throws InterruptedException {
+        List<Job> batch = new ArrayList<>(JOBS);
+        for (int i = 0; i < JOBS; i++) {
+            batch.add(BenchmarkDatabase.newJob("true"));
+        }
+        store.enqueueBatch(batch);
+        int completed;
+        while ((completed = store.getStatusSummary().getOrDefault(JobState.COMPLETED, 0)) < JOBS) {
+            Thread.sleep(5);
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,62 @@
+package com.queuectl.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.queuectl.model.Job;
+import com.queuectl.service.JobStore;
+
+/**
+ * Jobs inserted per second, one per transaction and in batches. The table is emptied
+ * between iterations so every iteration sees the same index sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EnqueueBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    private JobStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = BenchmarkDatabase.open();
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        BenchmarkDatabase.execute("DELETE FROM jobs");
+    }
+
+    @Benchmark
+    public boolean enqueueSingle() {
+        return store.enqueueJob(BenchmarkDatabase.newJob("true"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public boolean[] enqueueBatch() {
+        List<Job> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(BenchmarkDatabase.newJob("true"));
+        }
+        return store.enqueueBatch(batch);
+    }
+}
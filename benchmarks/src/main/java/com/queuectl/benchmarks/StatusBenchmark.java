@@ -0,0 +1,52 @@
+package com.queuectl.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.queuectl.model.JobState;
+import com.queuectl.service.JobStore;
+
+/**
+ * {@code getStatusSummary} on large tables with jobs spread over every state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StatusBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private JobStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = BenchmarkDatabase.open();
+        BenchmarkDatabase.fill(rows, "true");
+        // Mostly finished work, like a long-lived queue.
+        BenchmarkDatabase.execute("UPDATE jobs SET state = CASE abs(random()) % 20 " +
+                "WHEN 0 THEN 'PENDING' WHEN 1 THEN 'FAILED' WHEN 2 THEN 'DEAD' WHEN 3 THEN 'PROCESSING' " +
+                "ELSE 'COMPLETED' END");
+    }
+
+    @Benchmark
+    public Map<JobState, Integer> statusSummary() {
+        return store.getStatusSummary();
+    }
+}
@@ -0,0 +1,57 @@
+package com.queuectl.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.queuectl.model.Job;
+import com.queuectl.model.JobState;
+import com.queuectl.service.JobStore;
+
+/**
+ * Cost of recording a job result: {@code updateJob} on a claimed row, cycling through the table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UpdateBenchmark {
+    private static final int ROWS = 100_000;
+
+    private JobStore store;
+    private List<Job> jobs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = BenchmarkDatabase.open();
+        BenchmarkDatabase.fill(ROWS, "true");
+        jobs = store.listJobsByState(JobState.PENDING);
+        for (Job job : jobs) {
+            job.setState(JobState.COMPLETED);
+            job.setAttempts(1);
+            job.setOutput("ok");
+        }
+    }
+
+    @Benchmark
+    public boolean updateJob() {
+        Job job = jobs.get(next);
+        next = (next + 1) % jobs.size();
+        job.setUpdatedAt(System.currentTimeMillis());
+        return store.updateJob(job);
+    }
+}
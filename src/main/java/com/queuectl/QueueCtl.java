@@ -4,11 +4,14 @@ import com.queuectl.cli.ConfigCommand;
 import com.queuectl.cli.DashboardCommand;
 import com.queuectl.cli.DlqCommand;
 import com.queuectl.cli.EnqueueCommand;
+import com.queuectl.cli.GcCommand;
 import com.queuectl.cli.InfoCommand;
 import com.queuectl.cli.ListCommand;
 import com.queuectl.cli.LogsCommand;
+import com.queuectl.cli.RepairCommand;
 import com.queuectl.cli.StatusCommand;
 import com.queuectl.cli.WorkerCommand;
+import com.queuectl.daemon.DaemonClient;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -27,7 +30,9 @@ import picocli.CommandLine.Command;
         ConfigCommand.class,
         LogsCommand.class,
         DashboardCommand.class,
-        InfoCommand.class
+        InfoCommand.class,
+        RepairCommand.class,
+        GcCommand.class
     }
 )
 public class QueueCtl implements Runnable {
@@ -38,6 +43,11 @@ public class QueueCtl implements Runnable {
     }
 
     public static void main(String[] args) {
+        Integer forwarded = DaemonClient.forward(args);
+        if (forwarded != null) {
+            System.exit(forwarded);
+        }
+
         try {
             com.queuectl.service.JobStore.getInstance().initializeDatabase();
         } catch (Exception e) {
@@ -10,10 +10,10 @@ public class ConfigCommand {
 
     @Command(name = "set", description = "Set a configuration value")
     public void set(
-            @Parameters(index = "0", description = "Configuration key (e.g., max-retries, backoff-base)") String key,
+            @Parameters(index = "0", description = "Configuration key (e.g., max-retries, backoff-base, claim-batch-size, thread-mode, max-concurrent-jobs, output-tail-bytes, log-compression, log-segment-size, queue-<name>-weight, queue-<name>-max-jobs, aging-interval, aging-max-boost, lease-duration, completion-batch-size, completion-linger, autoscale-target-wait, autoscale-idle-time, autoscale-cooldown, autoscale-max-cpu, dedupe-window, group-<name>-max-jobs, group-<name>-rate, group-<name>-burst)") String key,
             @Parameters(index = "1", description = "Configuration value") String value) {
         
-        ConfigService configService = new ConfigService();
+        ConfigService configService = ConfigService.getInstance();
         configService.setConfig(key, value);
         System.out.printf("Config set: %s = %s%n", key, value);
     }
@@ -1,12 +1,18 @@
 package com.queuectl.cli;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import com.queuectl.model.JobState;
 import com.queuectl.service.JobStore;
 import com.queuectl.service.WorkerService;
 
 import io.javalin.Javalin;
+import io.javalin.http.Context;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
@@ -16,6 +22,10 @@ public class DashboardCommand implements Runnable {
     @Option(names = {"-p", "--port"}, defaultValue = "7070", description = "Port to run the dashboard on")
     private int port;
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 10_000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     @Override
     public void run() {
         Javalin app = Javalin.create(config -> {
@@ -34,22 +44,9 @@ public class DashboardCommand implements Runnable {
             ctx.json(statusMap);
         });
 
-        app.get("/api/jobs/pending", ctx -> {
-            ctx.json(JobStore.getInstance().listJobsByState(JobState.PENDING));
-        });
-        app.get("/api/jobs/completed", ctx -> {
-            ctx.json(JobStore.getInstance().listJobsByState(JobState.COMPLETED));
-        });
-        app.get("/api/jobs/dead", ctx -> {
-            ctx.json(JobStore.getInstance().listJobsByState(JobState.DEAD));
-        });
-        app.get("/api/jobs/processing", ctx -> {
-            ctx.json(JobStore.getInstance().listJobsByState(JobState.PROCESSING));
-        });
-        
-        app.get("/api/jobs/failed", ctx -> {
-            ctx.json(JobStore.getInstance().listJobsByState(JobState.FAILED));
-        });
+        for (JobState state : JobState.values()) {
+            app.get("/api/jobs/" + state.name().toLowerCase(), ctx -> streamJobs(ctx, state));
+        }
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("\nStopping dashboard...");
@@ -67,4 +64,42 @@ public class DashboardCommand implements Runnable {
             System.err.println("Dashboard interrupted");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes one page of jobs as {@code {"jobs":[...],"next":cursor}}, serializing each row as it
+     * is read so memory use does not depend on the page size. Query parameters: {@code limit},
+     * {@code after} (the previous page's {@code next}), {@code order=newest} to start from the
+     * newest job and {@code output=true} to include output.
+     */
+    private static void streamJobs(Context ctx, JobState state) throws IOException {
+        int limit = Math.min(MAX_PAGE_SIZE, Math.max(1,
+                ctx.queryParamAsClass("limit", Integer.class).getOrDefault(DEFAULT_PAGE_SIZE)));
+        String after = ctx.queryParam("after");
+        if (after != null) {
+            try {
+                JobStore.validateCursor(after);
+            } catch (IllegalArgumentException e) {
+                ctx.status(400).result(e.getMessage());
+                return;
+            }
+        }
+        int outputChars = "true".equals(ctx.queryParam("output")) ? JobStore.FULL_OUTPUT : 0;
+        boolean newestFirst = "newest".equals(ctx.queryParam("order"));
+
+        ctx.contentType("application/json");
+        try (JsonGenerator json = MAPPER.getFactory().createGenerator(ctx.outputStream())) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("jobs");
+            String next = JobStore.getInstance().forEachJobByState(state, null, after, limit, outputChars, newestFirst, job -> {
+                try {
+                    json.writeObject(job);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+            json.writeStringField("next", next);
+            json.writeEndObject();
+        }
+    }
+}
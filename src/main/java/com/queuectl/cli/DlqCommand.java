@@ -1,50 +1,54 @@
 package com.queuectl.cli;
 
+import java.io.PrintWriter;
+
 import com.queuectl.model.Job;
 import com.queuectl.model.JobState;
 import com.queuectl.service.JobStore;
+import com.queuectl.service.WakeupService;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
 
 @Command(name = "dlq", description = "Manage the Dead Letter Queue (DLQ)")
 public class DlqCommand {
 
+    @Spec
+    private CommandSpec spec;
+
     @Command(name = "list", description = "View all jobs in the DLQ")
-    public void list() {
-        new ListCommand() {
-            @Override
-            public void run() {
-                super.state = JobState.DEAD;
-                super.run();
-            }
-        }.run();
+    public void list(@Option(names = {"-q", "--queue"}, description = "Only jobs in this queue") String queue,
+                     @Option(names = "--limit", defaultValue = "0", description = "Show at most this many jobs (default: all)") int limit,
+                     @Option(names = "--after", description = "Cursor printed at the end of the previous page") String after,
+                     @Option(names = "--output", description = "Include each job's full stored output") boolean output) {
+        ListCommand.printJobs(spec.commandLine().getOut(), spec.commandLine().getErr(), JobState.DEAD, queue, after, limit, output);
     }
 
     @Command(name = "retry", description = "Retry a specific job from the DLQ")
     public void retry(@CommandLine.Parameters(index = "0", description = "The ID of the job to retry") String jobId) {
+        PrintWriter out = spec.commandLine().getOut();
+        PrintWriter err = spec.commandLine().getErr();
         JobStore jobStore = JobStore.getInstance();
         Job job = jobStore.findJobById(jobId);
 
         if (job == null) {
-            System.err.println("Error: Job not found: " + jobId);
+            err.println("Error: Job not found: " + jobId);
             return;
         }
 
         if (job.getState() != JobState.DEAD) {
-            System.err.println("Error: Job is not in the DLQ. Current state: " + job.getState());
+            err.println("Error: Job is not in the DLQ. Current state: " + job.getState());
             return;
         }
 
-        job.setState(JobState.PENDING);
-        job.setAttempts(0);
-        job.setUpdatedAt(System.currentTimeMillis());
-        job.setNextExecutionTime(System.currentTimeMillis());
-
-        if (jobStore.updateJob(job)) {
-            System.out.println("Job " + jobId + " has been requeued.");
+        if (jobStore.requeueDeadJob(jobId, System.currentTimeMillis())) {
+            WakeupService.notifyWorkers();
+            out.println("Job " + jobId + " has been requeued.");
         } else {
-            System.err.println("Failed to retry job " + jobId);
+            err.println("Failed to retry job " + jobId + ": it is no longer in the DLQ.");
         }
     }
 }
\ No newline at end of file
@@ -1,50 +1,250 @@
 package com.queuectl.cli;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.queuectl.model.Job;
 import com.queuectl.model.JobState;
+import com.queuectl.service.ConfigService;
 import com.queuectl.service.JobStore;
+import com.queuectl.service.WakeupService;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
 @Command(name = "enqueue", description = "Add a new job to the queue")
 public class EnqueueCommand implements Runnable {
+    private static final int BATCH_SIZE = 10_000;
+    private static final Pattern QUEUE_NAME = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final int MAX_DEDUPE_KEY_LENGTH = 256;
+    private static final Duration DEFAULT_DEDUPE_WINDOW = Duration.ofHours(24);
 
-    @Parameters(index = "0", description = "The job specification in JSON format")
+    @Parameters(index = "0", arity = "0..1", description = "The job specification in JSON format")
     private String jobJson;
 
+    @Option(names = {"-f", "--file"}, description = "Read one JSON job per line from a file ('-' for stdin)")
+    private String file;
+
+    @Option(names = {"-q", "--queue"}, description = "Queue for jobs that do not name one (default: default)")
+    private String queue = Job.DEFAULT_QUEUE;
+
+    @Spec
+    private CommandSpec spec;
+
+    private int duplicates;
+
     @Override
     public void run() {
+        PrintWriter out = spec.commandLine().getOut();
+        PrintWriter err = spec.commandLine().getErr();
+        if (file != null) {
+            enqueueFile(out, err);
+            return;
+        }
+        if (jobJson == null) {
+            err.println("Error: provide a job JSON string or --file.");
+            return;
+        }
+
         ObjectMapper mapper = new ObjectMapper();
         try {
             Job job = mapper.readValue(jobJson, Job.class);
 
-            if (job.getId() == null || job.getId().isEmpty()) {
-                job.setId(UUID.randomUUID().toString());
+            String error = prepare(job, queue, dedupeWindow(), System.currentTimeMillis());
+            if (error != null) {
+                err.println("Error: " + error);
+                return;
             }
-            job.setState(JobState.PENDING);
-            job.setAttempts(0);
-            long now = System.currentTimeMillis();
-            job.setCreatedAt(now);
-            job.setUpdatedAt(now);
-            job.setNextExecutionTime(now);
 
-            if (job.getCommand() == null || job.getCommand().isEmpty()) {
-                System.err.println("Error: 'command' field is required.");
+            boolean enqueued;
+            try {
+                enqueued = JobStore.getInstance().enqueueJob(job);
+            } catch (IllegalArgumentException e) {
+                err.println("Error: " + e.getMessage());
                 return;
             }
-
-            if (JobStore.getInstance().enqueueJob(job)) {
-                System.out.println("Job enqueued with ID: " + job.getId());
+            if (enqueued) {
+                if (job.isDuplicate()) {
+                    out.printf("Job already enqueued with ID: %s (dedupe_key %s)%n", job.getId(), job.getDedupeKey());
+                    return;
+                }
+                WakeupService.notifyWorkers(job.getNextExecutionTime());
+                if (job.getState() == JobState.BLOCKED) {
+                    out.printf("Job enqueued with ID: %s (waiting on %d parent job(s))%n", job.getId(), job.getPendingParents());
+                } else {
+                    out.println("Job enqueued with ID: " + job.getId());
+                }
             } else {
-                System.err.println("Failed to enqueue job.");
+                err.println("Failed to enqueue job.");
             }
 
         } catch (Exception e) {
-            System.err.println("Error parsing job JSON: " + e.getMessage());
+            err.println("Error parsing job JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams JSONL input and inserts it in large transactions. Bad lines are reported and skipped;
+     * they never abort the rest of the load.
+     */
+    private void enqueueFile(PrintWriter out, PrintWriter err) {
+        ObjectReader reader = new ObjectMapper().readerFor(Job.class);
+        JobStore jobStore = JobStore.getInstance();
+        List<Job> batch = new ArrayList<>(BATCH_SIZE);
+        List<Integer> batchLines = new ArrayList<>(BATCH_SIZE);
+        Duration dedupeWindow = dedupeWindow();
+        int lineNumber = 0;
+        int enqueued = 0;
+        int failed = 0;
+
+        try (BufferedReader in = "-".equals(file)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String error;
+                Job job = null;
+                try {
+                    job = reader.readValue(line);
+                    error = prepare(job, queue, dedupeWindow, System.currentTimeMillis());
+                } catch (JsonProcessingException e) {
+                    error = "invalid JSON: " + e.getOriginalMessage();
+                }
+                if (error != null) {
+                    err.printf("Line %d: %s%n", lineNumber, error);
+                    failed++;
+                    continue;
+                }
+                batch.add(job);
+                batchLines.add(lineNumber);
+                if (batch.size() == BATCH_SIZE) {
+                    int inserted = flush(jobStore, batch, batchLines, err);
+                    enqueued += inserted;
+                    failed += batch.size() - inserted;
+                    batch.clear();
+                    batchLines.clear();
+                }
+            }
+            int inserted = flush(jobStore, batch, batchLines, err);
+            enqueued += inserted;
+            failed += batch.size() - inserted;
+        } catch (Exception e) {
+            err.println("Failed to read jobs: " + e.getMessage());
+        }
+
+        if (duplicates > 0) {
+            out.printf("Enqueued %d job(s), %d already enqueued (dedupe_key), %d failed.%n",
+                    enqueued - duplicates, duplicates, failed);
+        } else {
+            out.printf("Enqueued %d job(s), %d failed.%n", enqueued, failed);
+        }
+    }
+
+    /**
+     * Inserts one batch and returns how many of its jobs were accepted, counting duplicates of
+     * an existing dedupe key (which are also added to {@link #duplicates}).
+     */
+    private int flush(JobStore jobStore, List<Job> batch, List<Integer> batchLines, PrintWriter err) {
+        if (batch.isEmpty()) {
+            return 0;
         }
+        boolean[] inserted = jobStore.enqueueBatch(batch);
+        int count = 0;
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] && batch.get(i).isDuplicate()) {
+                count++;
+                duplicates++;
+            } else if (inserted[i]) {
+                count++;
+                earliest = Math.min(earliest, batch.get(i).getNextExecutionTime());
+            } else {
+                err.printf("Line %d: job %s was not inserted (duplicate id or unknown depends_on?)%n",
+                        batchLines.get(i), batch.get(i).getId());
+            }
+        }
+        if (count > 0) {
+            WakeupService.notifyWorkers(earliest);
+        }
+        return count;
+    }
+
+    /**
+     * Fills in the server-side fields of a freshly parsed job. Returns an error message if the job is invalid.
+     */
+    static String prepare(Job job, String defaultQueue, Duration dedupeWindow, long now) {
+        if (job.getCommand() == null || job.getCommand().isEmpty()) {
+            return "'command' field is required.";
+        }
+        if (job.getQueue() == null) {
+            job.setQueue(defaultQueue);
+        }
+        if (!QUEUE_NAME.matcher(job.getQueue()).matches()) {
+            // Queue names end up in config keys such as queue-<name>-weight.
+            return "queue names are 1-64 letters, digits, '.', '_' or '-': " + job.getQueue();
+        }
+        if (job.getGroup() != null && !QUEUE_NAME.matcher(job.getGroup()).matches()) {
+            // Group names end up in config keys such as group-<name>-rate.
+            return "group names are 1-64 letters, digits, '.', '_' or '-': " + job.getGroup();
+        }
+        if (job.getId() == null || job.getId().isEmpty()) {
+            job.setId(UUID.randomUUID().toString());
+        }
+        if (job.getDependsOn() != null) {
+            Set<String> parents = new LinkedHashSet<>(job.getDependsOn());
+            if (parents.contains(null) || parents.contains("")) {
+                return "'depends_on' must list job ids.";
+            }
+            if (parents.contains(job.getId())) {
+                return "a job cannot depend on itself.";
+            }
+            job.setDependsOn(new ArrayList<>(parents));
+        }
+        job.setPendingParents(0);
+        job.setDuplicate(false);
+        if (job.getDedupeKey() != null) {
+            if (job.getDedupeKey().isEmpty() || job.getDedupeKey().length() > MAX_DEDUPE_KEY_LENGTH) {
+                return "'dedupe_key' must be 1-" + MAX_DEDUPE_KEY_LENGTH + " characters.";
+            }
+            // A zero window holds the key for as long as the job exists.
+            job.setDedupeExpiresAt(dedupeWindow.isZero() ? Long.MAX_VALUE : now + dedupeWindow.toMillis());
+        }
+        job.setAttempts(0);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        long runAt = now;
+        if (job.getRunAt() != null) {
+            runAt = job.getRunAt();
+        } else if (job.getDelay() > 0) {
+            runAt = now + job.getDelay() * 1000L;
+        }
+        job.setState(runAt > now ? JobState.SCHEDULED : JobState.PENDING);
+        job.setNextExecutionTime(Math.max(runAt, now));
+        return null;
+    }
+
+    private static Duration dedupeWindow() {
+        return ConfigService.getInstance().getConfigAsDuration("dedupe-window", DEFAULT_DEDUPE_WINDOW);
     }
-}
\ No newline at end of file
+}
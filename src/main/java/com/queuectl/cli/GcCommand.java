@@ -0,0 +1,73 @@
+package com.queuectl.cli;
+
+import java.io.PrintWriter;
+
+import com.queuectl.model.JobState;
+import com.queuectl.service.JobStore;
+import com.queuectl.service.RetentionService;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+@Command(name = "gc", description = "Apply the retention policy to finished jobs now")
+public class GcCommand implements Runnable {
+
+    @Option(names = "--dry-run", description = "Only report what would be removed")
+    private boolean dryRun;
+
+    @Option(names = "--vacuum", description = "Switch the database to incremental vacuum (one-time full VACUUM)")
+    private boolean vacuum;
+
+    @Spec
+    private CommandSpec spec;
+
+    @Override
+    public void run() {
+        PrintWriter out = spec.commandLine().getOut();
+        PrintWriter err = spec.commandLine().getErr();
+        RetentionService retention = new RetentionService();
+
+        if (vacuum && !dryRun) {
+            out.println("Rewriting the database with incremental vacuum enabled...");
+            try {
+                JobStore.getInstance().enableIncrementalVacuum();
+            } catch (Exception e) {
+                err.println("Vacuum failed: " + e.getMessage());
+                return;
+            }
+        }
+        if (!retention.hasPolicy()) {
+            out.println("No retention policy set (see retention-completed-age, retention-dead-count, ...).");
+        }
+
+        RetentionService.Report report;
+        try {
+            report = retention.run(dryRun);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            err.println("GC failed: " + e.getMessage());
+            return;
+        }
+
+        out.println(dryRun ? "--- GC dry run: would remove ---" : "--- GC removed ---");
+        for (JobState state : report.jobs.keySet()) {
+            out.printf("%-10s: %d job(s), %s of logs%n", state.name(), report.jobs.get(state),
+                    megabytes(report.logBytes.get(state)));
+        }
+        long free = report.freePages * report.pageSize;
+        if (report.incrementalVacuum) {
+            out.printf("Free space %s: %s%n", dryRun ? "waiting to be vacuumed" : "left in the database file", megabytes(free));
+        } else {
+            out.printf("Free space inside the database: %s (run `queuectl gc --vacuum` once to reclaim it automatically)%n",
+                    megabytes(free));
+        }
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -1,13 +1,17 @@
 package com.queuectl.cli;
 
+import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 
 import com.queuectl.model.Job;
 import com.queuectl.service.JobStore;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 
 @Command(name = "info", description = "Get all details for a specific job")
 public class InfoCommand implements Runnable {
@@ -15,36 +19,64 @@ public class InfoCommand implements Runnable {
     @Parameters(index = "0", description = "The ID of the job to inspect")
     private String jobId;
 
+    @Spec
+    private CommandSpec spec;
+
     @Override
     public void run() {
+        PrintWriter out = spec.commandLine().getOut();
+        PrintWriter err = spec.commandLine().getErr();
         Job job = JobStore.getInstance().findJobById(jobId);
 
         if (job == null) {
-            System.err.println("Error: Job not found: " + jobId);
+            err.println("Error: Job not found: " + jobId);
             return;
         }
 
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
-        System.out.println("--- Job Details ---");
-        System.out.printf("ID:        %s%n", job.getId());
-        System.out.printf("State:     %s%n", job.getState());
-        System.out.printf("Command:   %s%n", job.getCommand());
-        System.out.printf("Priority:  %d%n", job.getPriority());
-        System.out.printf("Attempts:  %d / %d%n", job.getAttempts(), job.getMaxRetries());
-        System.out.printf("Timeout:   %d seconds%n", job.getTimeout());
-        System.out.printf("Created:   %s%n", sdf.format(new Date(job.getCreatedAt())));
-        System.out.printf("Updated:   %s%n", sdf.format(new Date(job.getUpdatedAt())));
+        out.println("--- Job Details ---");
+        out.printf("ID:        %s%n", job.getId());
+        out.printf("State:     %s%n", job.getState());
+        out.printf("Queue:     %s%n", job.getQueue());
+        if (job.getGroup() != null) {
+            out.printf("Group:     %s%n", job.getGroup());
+        }
+        if (job.getDedupeKey() != null) {
+            out.printf("Dedupe:    %s%n", job.getDedupeKey());
+        }
+        out.printf("Command:   %s%n", job.getCommand());
+        if (job.getEffectivePriority() != job.getPriority()) {
+            out.printf("Priority:  %d (aged to %d)%n", job.getPriority(), job.getEffectivePriority());
+        } else {
+            out.printf("Priority:  %d%n", job.getPriority());
+        }
+        out.printf("Attempts:  %d / %d%n", job.getAttempts(), job.getMaxRetries());
+        out.printf("Timeout:   %d seconds%n", job.getTimeout());
+        out.printf("Created:   %s%n", sdf.format(new Date(job.getCreatedAt())));
+        out.printf("Updated:   %s%n", sdf.format(new Date(job.getUpdatedAt())));
         
         if (job.getState() == com.queuectl.model.JobState.FAILED) {
-             System.out.printf("Next Try:  %s%n", sdf.format(new Date(job.getNextExecutionTime())));
+             out.printf("Next Try:  %s%n", sdf.format(new Date(job.getNextExecutionTime())));
+        } else if (job.getState() == com.queuectl.model.JobState.SCHEDULED) {
+             out.printf("Runs At:   %s%n", sdf.format(new Date(job.getNextExecutionTime())));
+        } else if (job.getState() == com.queuectl.model.JobState.PROCESSING) {
+             out.printf("Worker:    %s (lease until %s)%n", job.getWorkerId(), sdf.format(new Date(job.getLeaseExpiresAt())));
+        }
+
+        List<String> parents = JobStore.getInstance().listParents(job.getId());
+        if (!parents.isEmpty()) {
+            out.printf("Depends:   %s%n", String.join(", ", parents));
+            if (job.getState() == com.queuectl.model.JobState.BLOCKED) {
+                out.printf("Waiting:   %d of %d parent(s) not completed%n", job.getPendingParents(), parents.size());
+            }
         }
 
-        System.out.println("--- Last Output ---");
+        out.println("--- Last Output ---");
         if (job.getOutput() != null && !job.getOutput().isEmpty()) {
-            System.out.println(job.getOutput());
+            out.println(job.getOutput());
         } else {
-            System.out.println("(No output recorded)");
+            out.println("(No output recorded)");
         }
     }
 }
\ No newline at end of file
@@ -1,37 +1,76 @@
 package com.queuectl.cli;
 
-import java.util.List;
+import java.io.PrintWriter;
 
-import com.queuectl.model.Job;
 import com.queuectl.model.JobState;
 import com.queuectl.service.JobStore;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
 
 @Command(name = "list", description = "List jobs by state")
 public class ListCommand implements Runnable {
+    private static final int PREVIEW_CHARS = 80;
 
     @Option(names = "--state", required = true, description = "Job state (PENDING, COMPLETED, DEAD)")
     protected JobState state;
 
+    @Option(names = {"-q", "--queue"}, description = "Only jobs in this queue")
+    private String queue;
+
+    @Option(names = "--limit", defaultValue = "0", description = "Show at most this many jobs (default: all)")
+    private int limit;
+
+    @Option(names = "--after", description = "Cursor printed at the end of the previous page")
+    private String after;
+
+    @Option(names = "--output", description = "Include each job's stored output")
+    private boolean output;
+
+    @Spec
+    private CommandSpec spec;
+
     @Override
     public void run() {
-        List<Job> jobs = JobStore.getInstance().listJobsByState(state);
-        if (jobs.isEmpty()) {
-            System.out.println("No jobs found in state " + state);
+        printJobs(spec.commandLine().getOut(), spec.commandLine().getErr(), state, queue, after, limit, output);
+    }
+
+    /**
+     * Prints one page of jobs as they are read. DEAD jobs show the start of their output even
+     * without {@code fullOutput}.
+     */
+    static void printJobs(PrintWriter out, PrintWriter err, JobState state, String queue, String after, int limit,
+                          boolean fullOutput) {
+        int outputChars = fullOutput ? JobStore.FULL_OUTPUT : state == JobState.DEAD ? PREVIEW_CHARS : 0;
+        int[] printed = {0};
+        String next;
+        try {
+            next = JobStore.getInstance().forEachJobByState(state, queue, after, limit, outputChars, job -> {
+                if (printed[0]++ == 0) {
+                    out.printf("--- Jobs in %s state%s ---%n", state, queue != null ? " in queue " + queue : "");
+                }
+                out.printf("ID: %s%n", job.getId());
+                out.printf("  Queue: %s%n", job.getQueue());
+                out.printf("  Command: %s%n", job.getCommand());
+                out.printf("  Attempts: %d%n", job.getAttempts());
+                if (fullOutput && job.getOutput() != null) {
+                    out.printf("  Output:%n%s%n", job.getOutput());
+                } else if (state == JobState.DEAD && job.getOutput() != null) {
+                    out.printf("  Last Output: %s%n", job.getOutput() + "...");
+                }
+                out.println("---------------------------------");
+            });
+        } catch (IllegalArgumentException e) {
+            err.println("Error: " + e.getMessage());
             return;
         }
 
-        System.out.printf("--- Jobs in %s state ---%n", state);
-        for (Job job : jobs) {
-            System.out.printf("ID: %s%n", job.getId());
-            System.out.printf("  Command: %s%n", job.getCommand());
-            System.out.printf("  Attempts: %d%n", job.getAttempts());
-            if (state == JobState.DEAD && job.getOutput() != null) {
-                System.out.printf("  Last Output: %s%n", job.getOutput().substring(0, Math.min(80, job.getOutput().length())) + "...");
-            }
-            System.out.println("---------------------------------");
+        if (printed[0] == 0) {
+            out.println("No jobs found in state " + state);
+        } else if (next != null) {
+            out.printf("More jobs available; next page: --after %s%n", next);
         }
     }
-}
\ No newline at end of file
+}
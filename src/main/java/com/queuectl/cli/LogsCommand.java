@@ -1,31 +1,157 @@
 package com.queuectl.cli;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import com.queuectl.model.Job;
+import com.queuectl.model.JobState;
+import com.queuectl.service.JobStore;
+import com.queuectl.service.LogStore;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 @Command(name = "logs", description = "View persistent logs for a job")
 public class LogsCommand implements Runnable {
+    private static final long FOLLOW_POLL_MILLIS = 500;
+    private static final int LEGACY_BLOCK_SIZE = 64 * 1024;
+
+    private interface Blocks {
+        byte[] read(int index) throws IOException;
+    }
 
     @Parameters(index = "0", description = "The ID of the job to view logs for")
     private String jobId;
 
+    @Option(names = {"-n", "--tail"}, description = "Only print the last N lines")
+    private Integer tail;
+
+    @Option(names = {"-f", "--follow"}, description = "Keep printing new output until the job completes or dies")
+    private boolean follow;
+
     @Override
     public void run() {
+        LogStore logStore = LogStore.getInstance();
+        PrintStream out = System.out;
         try {
-            Path logPath = Paths.get(System.getProperty("user.home"), ".queuectl", "logs", jobId + ".log");
-            if (!Files.exists(logPath)) {
+            List<LogStore.Chunk> chunks = logStore.chunks(jobId, 0, -1);
+            Path legacy = LogStore.legacyFile(jobId);
+            boolean hasLegacy = chunks.isEmpty() && Files.exists(legacy);
+            if (chunks.isEmpty() && !hasLegacy && !follow) {
                 System.err.println("No logs found for job: " + jobId);
                 return;
             }
-            String logs = new String(Files.readAllBytes(logPath));
-            System.out.println("--- Logs for " + jobId + " ---");
-            System.out.println(logs);
+
+            out.println("--- Logs for " + jobId + " ---");
+            if (hasLegacy) {
+                // Written before segmented storage.
+                printLegacy(legacy, out);
+            } else if (tail != null) {
+                printTail(chunks.size(), i -> logStore.read(chunks.get(i)), Math.max(0, tail), out);
+            } else {
+                for (LogStore.Chunk chunk : chunks) {
+                    out.write(logStore.read(chunk));
+                }
+            }
+            out.flush();
+            if (follow) {
+                LogStore.Chunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+                follow(logStore, last, out);
+            }
+            out.println();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             System.err.println("Failed to read logs: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Prints a per-job log file, reading only its last blocks when {@code --tail} is given.
+     */
+    private void printLegacy(Path legacy, PrintStream out) throws IOException {
+        if (tail == null) {
+            Files.copy(legacy, out);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(legacy, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) ((size + LEGACY_BLOCK_SIZE - 1) / LEGACY_BLOCK_SIZE);
+            printTail(count, i -> {
+                long position = (long) i * LEGACY_BLOCK_SIZE;
+                ByteBuffer block = ByteBuffer.allocate((int) Math.min(LEGACY_BLOCK_SIZE, size - position));
+                while (block.hasRemaining() && channel.read(block, position + block.position()) >= 0) {
+                    // keep reading until the block is full
+                }
+                return block.array();
+            }, Math.max(0, tail), out);
+        }
+    }
+
+    /**
+     * Reads the last of {@code count} blocks backwards until {@code lines} line breaks are
+     * found, then prints from the start of the first wanted line.
+     */
+    private static void printTail(int count, Blocks source, int lines, PrintStream out) throws IOException {
+        if (lines == 0) {
+            return;
+        }
+        Deque<byte[]> blocks = new ArrayDeque<>();
+        int start = 0;
+        int newlines = 0;
+        boolean found = false;
+        for (int i = count - 1; i >= 0 && !found; i--) {
+            byte[] block = source.read(i);
+            blocks.addFirst(block);
+            int end = block.length;
+            if (i == count - 1 && end > 0 && block[end - 1] == '\n') {
+                // A final line break ends the last line rather than starting another one.
+                end--;
+            }
+            for (int pos = end - 1; pos >= 0; pos--) {
+                if (block[pos] == '\n' && ++newlines == lines) {
+                    start = pos + 1;
+                    found = true;
+                    break;
+                }
+            }
+        }
+        boolean first = true;
+        for (byte[] block : blocks) {
+            int from = first && found ? start : 0;
+            out.write(block, from, block.length - from);
+            first = false;
+        }
+    }
+
+    private void follow(LogStore logStore, LogStore.Chunk last, PrintStream out) throws IOException, InterruptedException {
+        JobStore jobStore = JobStore.getInstance();
+        int run = last == null ? 0 : last.run;
+        int block = last == null ? -1 : last.block;
+        while (true) {
+            // Check the state first: a worker indexes a run's last block before it records the
+            // outcome, so one more read after seeing a final state cannot miss output.
+            Job job = jobStore.findJobById(jobId);
+            boolean done = job == null || job.getState() == JobState.COMPLETED || job.getState() == JobState.DEAD;
+            for (LogStore.Chunk chunk : logStore.chunks(jobId, run, block)) {
+                out.write(logStore.read(chunk));
+                run = chunk.run;
+                block = chunk.block;
+            }
+            out.flush();
+            if (done) {
+                return;
+            }
+            Thread.sleep(FOLLOW_POLL_MILLIS);
+        }
+    }
+}
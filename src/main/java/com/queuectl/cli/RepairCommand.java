@@ -0,0 +1,45 @@
+package com.queuectl.cli;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+import com.queuectl.model.JobState;
+import com.queuectl.service.JobStore;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
+
+@Command(name = "repair", description = "Recompute the per-state job counters used by status and the dashboard")
+public class RepairCommand implements Runnable {
+
+    @Spec
+    private CommandSpec spec;
+
+    @Override
+    public void run() {
+        PrintWriter out = spec.commandLine().getOut();
+        PrintWriter err = spec.commandLine().getErr();
+        List<Map<JobState, Integer>> counts;
+        try {
+            counts = JobStore.getInstance().repairStatusCounts();
+        } catch (Exception e) {
+            err.println("Failed to repair counters: " + e.getMessage());
+            return;
+        }
+
+        Map<JobState, Integer> before = counts.get(0);
+        Map<JobState, Integer> after = counts.get(1);
+        int fixed = 0;
+        for (JobState state : JobState.values()) {
+            int was = before.getOrDefault(state, 0);
+            int now = after.getOrDefault(state, 0);
+            if (was != now) {
+                out.printf("%-10s: %d -> %d%n", state.name(), was, now);
+                fixed++;
+            }
+        }
+        out.println(fixed == 0 ? "Counters were already correct." : "Counters repaired.");
+    }
+}
@@ -1,33 +1,84 @@
 package com.queuectl.cli;
 
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
+import com.queuectl.metrics.Metrics;
+import com.queuectl.model.Job;
 import com.queuectl.model.JobState;
+import com.queuectl.service.ConfigService;
 import com.queuectl.service.JobStore;
 import com.queuectl.service.WorkerService;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
 
 @Command(name = "status", description = "Show summary of all job states & active workers")
 public class StatusCommand implements Runnable {
+
+    @Option(names = {"-q", "--queue"}, description = "Only count jobs in this queue")
+    private String queue;
+
+    @Option(names = "--metrics", description = "Also show latency percentiles and outcome counts from the running worker")
+    private boolean metrics;
+
+    @Spec
+    private CommandSpec spec;
+
     @Override
     public void run() {
-        System.out.println("--- Worker Status ---");
+        PrintWriter out = spec.commandLine().getOut();
+        ConfigService config = ConfigService.getInstance();
+        out.println("--- Worker Status ---");
         String pid = WorkerService.getRunningPid();
         if (pid != null) {
-            System.out.println("Workers are RUNNING (PID: " + pid + ")");
+            out.println("Workers are RUNNING (PID: " + pid + ")");
         } else {
-            System.out.println("Workers are STOPPED");
+            out.println("Workers are STOPPED");
         }
 
-        System.out.println("\n--- Job Queue Status ---");
-        Map<JobState, Integer> summary = JobStore.getInstance().getStatusSummary();
+        JobStore jobStore = JobStore.getInstance();
+        out.println(queue == null ? "\n--- Job Queue Status ---" : "\n--- Job Queue Status: " + queue + " ---");
+        Map<JobState, Integer> summary = queue == null ? jobStore.getStatusSummary() : jobStore.getStatusSummary(queue);
         if (summary.isEmpty()) {
-            System.out.println("Queue is empty.");
+            out.println("Queue is empty.");
         } else {
             for (JobState state : JobState.values()) {
-                System.out.printf("%-10s: %d%n", state.name(), summary.getOrDefault(state, 0));
+                out.printf("%-10s: %d%n", state.name(), summary.getOrDefault(state, 0));
+            }
+        }
+
+        List<String> queues = jobStore.listQueues();
+        if (queue == null && (queues.size() > 1 || (queues.size() == 1 && !Job.DEFAULT_QUEUE.equals(queues.get(0))))) {
+            out.println("\n--- Queues ---");
+            for (String name : queues) {
+                Map<JobState, Integer> counts = jobStore.getStatusSummary(name);
+                out.printf("%-16s pending %d, processing %d, failed %d, scheduled %d, weight %d, max jobs %s%n", name,
+                        counts.getOrDefault(JobState.PENDING, 0), counts.getOrDefault(JobState.PROCESSING, 0),
+                        counts.getOrDefault(JobState.FAILED, 0), counts.getOrDefault(JobState.SCHEDULED, 0),
+                        Math.max(1, config.getConfigAsInt("queue-" + name + "-weight", 1)),
+                        maxJobs(config.getConfigAsInt("queue-" + name + "-max-jobs", 0)));
+            }
+        }
+
+        if (metrics) {
+            out.println("\n--- Worker Metrics ---");
+            Metrics collected = Metrics.getInstance();
+            if (collected.isCollecting()) {
+                out.printf("Collected since %s%n%n", new Date(collected.collectingSince()));
+                collected.writeSummary(out);
+            } else {
+                // Metrics live in the worker process; only a forwarded status can see them.
+                out.println("No metrics: no worker is running with the daemon enabled.");
             }
         }
     }
-}
\ No newline at end of file
+
+    private static String maxJobs(int cap) {
+        return cap > 0 ? String.valueOf(cap) : "-";
+    }
+}
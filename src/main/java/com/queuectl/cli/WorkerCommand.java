@@ -1,20 +1,54 @@
 package com.queuectl.cli;
 
+import java.io.PrintWriter;
+
 import com.queuectl.service.WorkerService;
 
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
 
 @Command(name = "worker", description = "Manage worker processes")
 public class WorkerCommand {
 
+    @Spec
+    private CommandSpec spec;
+
     @Command(name = "start", description = "Start worker processes")
-    public void start(@Option(names = "--count", defaultValue = "1", description = "Number of workers") int count) {
-        new WorkerService().start(count);
+    public void start(@Option(names = "--count", description = "Number of workers (default: 1)") Integer count,
+                      @Option(names = "--min", description = "Autoscale: fewest workers to keep (default: 1)") Integer min,
+                      @Option(names = "--max", description = "Autoscale: most workers to grow to") Integer max,
+                      @Option(names = "--no-daemon", description = "Do not serve CLI commands or metrics from this process") boolean noDaemon,
+                      @Option(names = "--metrics-port", defaultValue = "0", description = "Fixed loopback port for the daemon and /metrics (default: any free port)") int metricsPort) {
+        PrintWriter err = spec.commandLine().getErr();
+        if (max == null) {
+            if (min != null) {
+                err.println("Error: --min needs --max");
+                return;
+            }
+            int workers = count != null ? count : 1;
+            if (workers < 1) {
+                err.println("Error: --count must be at least 1");
+                return;
+            }
+            new WorkerService().start(workers, !noDaemon, metricsPort);
+            return;
+        }
+        if (count != null) {
+            err.println("Error: use either --count or --min/--max");
+            return;
+        }
+        int low = min != null ? min : 1;
+        if (low < 1 || max < low) {
+            err.println("Error: need 1 <= --min <= --max");
+            return;
+        }
+        new WorkerService().start(low, max, !noDaemon, metricsPort);
     }
 
     @Command(name = "stop", description = "Stop running workers gracefully")
     public void stop() {
         new WorkerService().stop();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package com.queuectl.daemon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Arrays;
+
+/**
+ * Thin client that hands a CLI invocation to a running daemon. It only touches the JDK,
+ * Jackson and the endpoint file, so forwarding skips Javalin, JDBC and database setup.
+ */
+public final class DaemonClient {
+    private static final int CONNECT_TIMEOUT_MS = 500;
+    private static final int READ_TIMEOUT_MS = 120_000;
+    // Largest listing worth forwarding; the daemon buffers the whole response.
+    private static final int MAX_FORWARDED_LIST = 1_000;
+
+    private DaemonClient() {}
+
+    /**
+     * Runs {@code args} in the daemon if one is serving this database. Returns the command's
+     * exit code, or {@code null} if the caller should run the command locally.
+     */
+    public static Integer forward(String[] args) {
+        if (args.length == 0 || !DaemonProtocol.FORWARDED_COMMANDS.contains(args[0]) || readsLocalInput(args) || listsUnbounded(args)) {
+            return null;
+        }
+        DaemonProtocol.Endpoint endpoint = DaemonProtocol.readEndpoint();
+        if (endpoint == null
+                || !ProcessHandle.of(endpoint.pid).map(ProcessHandle::isAlive).orElse(false)
+                || !DaemonProtocol.databasePath().equals(endpoint.db)) {
+            return null;
+        }
+
+        HttpURLConnection conn;
+        try {
+            conn = (HttpURLConnection) new URL("http://127.0.0.1:" + endpoint.port + DaemonProtocol.RPC_PATH).openConnection();
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setRequestProperty(DaemonProtocol.TOKEN_HEADER, endpoint.token);
+            conn.connect();
+        } catch (IOException e) {
+            return null;
+        }
+
+        DaemonProtocol.Request request = new DaemonProtocol.Request();
+        request.args = Arrays.asList(args);
+        try {
+            try (OutputStream body = conn.getOutputStream()) {
+                DaemonProtocol.MAPPER.writeValue(body, request);
+            }
+            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                // Rejected before anything ran (stale token, unknown command): run locally.
+                return null;
+            }
+            DaemonProtocol.Response response;
+            try (InputStream in = conn.getInputStream()) {
+                response = DaemonProtocol.MAPPER.readValue(in, DaemonProtocol.Response.class);
+            }
+            System.out.print(response.out);
+            System.out.flush();
+            System.err.print(response.err);
+            System.err.flush();
+            return response.exitCode;
+        } catch (ConnectException e) {
+            return null;
+        } catch (SocketTimeoutException e) {
+            // The command may already have run; re-running it locally could enqueue twice.
+            System.err.println("Daemon did not answer in time; the command may or may not have completed.");
+            return 1;
+        } catch (IOException e) {
+            System.err.println("Daemon request failed: " + e.getMessage());
+            return 1;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static boolean readsLocalInput(String[] args) {
+        // Bulk enqueue reads a client-side file or stdin; keep it in this process. picocli also
+        // accepts the value attached to the short option ("-f-", "-fjobs.jsonl").
+        return "enqueue".equals(args[0])
+                && Arrays.stream(args).anyMatch(a -> a.startsWith("-f") || a.startsWith("--file"));
+    }
+
+    private static boolean listsUnbounded(String[] args) {
+        // Large listings stream page by page in constant memory when run locally.
+        boolean listing = "list".equals(args[0]) || ("dlq".equals(args[0]) && args.length > 1 && "list".equals(args[1]));
+        if (!listing) {
+            return false;
+        }
+        int limit = 0;
+        for (int i = 0; i < args.length; i++) {
+            String value = null;
+            if (args[i].equals("--output")) {
+                return true;
+            } else if (args[i].equals("--limit") && i + 1 < args.length) {
+                value = args[i + 1];
+            } else if (args[i].startsWith("--limit=")) {
+                value = args[i].substring("--limit=".length());
+            }
+            if (value != null) {
+                try {
+                    limit = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return limit <= 0 || limit > MAX_FORWARDED_LIST;
+    }
+}
@@ -0,0 +1,79 @@
+package com.queuectl.daemon;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.queuectl.service.JobStore;
+
+/**
+ * Wire format shared by {@link DaemonServer} and {@link DaemonClient}. Kept free of Javalin and
+ * JDBC so the client side stays cheap to load.
+ */
+final class DaemonProtocol {
+    static final Path ENDPOINT_FILE = Paths.get(System.getProperty("user.home"), ".queuectl", "daemon.json");
+    static final String TOKEN_HEADER = "X-Queuectl-Token";
+    static final String RPC_PATH = "/rpc";
+
+    /** Top-level commands that may run inside the daemon instead of a fresh JVM. */
+    static final Set<String> FORWARDED_COMMANDS = Set.of("enqueue", "status", "info", "list", "dlq");
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private DaemonProtocol() {}
+
+    static class Endpoint {
+        public int port;
+        public long pid;
+        public String token;
+        public String db;
+    }
+
+    static class Request {
+        public List<String> args;
+    }
+
+    static class Response {
+        public int exitCode;
+        public String out;
+        public String err;
+    }
+
+    static Endpoint readEndpoint() {
+        try {
+            if (!Files.exists(ENDPOINT_FILE)) {
+                return null;
+            }
+            return MAPPER.readValue(ENDPOINT_FILE.toFile(), Endpoint.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static void writeEndpoint(Endpoint endpoint) throws IOException {
+        Files.createDirectories(ENDPOINT_FILE.getParent());
+        Path tmp = ENDPOINT_FILE.resolveSibling("daemon.json.tmp");
+        Files.write(tmp, MAPPER.writeValueAsBytes(endpoint));
+        try {
+            // The token in this file is the only thing guarding the socket.
+            Files.setPosixFilePermissions(tmp, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX filesystem
+        }
+        Files.move(tmp, ENDPOINT_FILE, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Absolute path of the database this process would open. Reads the property directly rather
+     * than {@code JobStore.DB_FILE} so the client never loads JobStore.
+     */
+    static String databasePath() {
+        return Paths.get(System.getProperty(JobStore.DB_PROPERTY, JobStore.DEFAULT_DB_FILE))
+                .toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,107 @@
+package com.queuectl.daemon;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+
+import com.queuectl.QueueCtl;
+import com.queuectl.metrics.Metrics;
+import com.queuectl.service.JobStore;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import picocli.CommandLine;
+
+/**
+ * Loopback RPC endpoint hosted by the worker process. It runs forwarded CLI invocations
+ * against the already-open JobStore and returns their output, so scripted calls skip JVM
+ * startup and database initialization. It also serves the process's {@code /metrics}.
+ */
+public class DaemonServer {
+    private final String token = newToken();
+    private final int port;
+    private Javalin app;
+
+    /**
+     * @param port loopback port to listen on, or 0 for any free port
+     */
+    public DaemonServer(int port) {
+        this.port = port;
+    }
+
+    public synchronized void start() throws IOException {
+        app = Javalin.create(config -> config.showJavalinBanner = false)
+                .post(DaemonProtocol.RPC_PATH, this::handle)
+                .get("/metrics", this::metrics)
+                .start("127.0.0.1", port);
+
+        DaemonProtocol.Endpoint endpoint = new DaemonProtocol.Endpoint();
+        endpoint.port = app.port();
+        endpoint.pid = ProcessHandle.current().pid();
+        endpoint.token = token;
+        endpoint.db = DaemonProtocol.databasePath();
+        DaemonProtocol.writeEndpoint(endpoint);
+        System.out.println("Daemon listening on 127.0.0.1:" + endpoint.port);
+    }
+
+    public synchronized void stop() {
+        if (app == null) {
+            return;
+        }
+        DaemonProtocol.Endpoint endpoint = DaemonProtocol.readEndpoint();
+        if (endpoint != null && endpoint.pid == ProcessHandle.current().pid()) {
+            try {
+                Files.deleteIfExists(DaemonProtocol.ENDPOINT_FILE);
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        app.stop();
+        app = null;
+    }
+
+    private void handle(Context ctx) {
+        if (!token.equals(ctx.header(DaemonProtocol.TOKEN_HEADER))) {
+            ctx.status(HttpStatus.FORBIDDEN);
+            return;
+        }
+        DaemonProtocol.Request request = ctx.bodyAsClass(DaemonProtocol.Request.class);
+        if (request.args == null || request.args.isEmpty()
+                || !DaemonProtocol.FORWARDED_COMMANDS.contains(request.args.get(0))) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            return;
+        }
+
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        CommandLine cmd = new CommandLine(new QueueCtl());
+        cmd.setOut(new PrintWriter(out, true));
+        cmd.setErr(new PrintWriter(err, true));
+
+        DaemonProtocol.Response response = new DaemonProtocol.Response();
+        response.exitCode = cmd.execute(request.args.toArray(new String[0]));
+        response.out = out.toString();
+        response.err = err.toString();
+        ctx.json(response);
+    }
+
+    // Read-only and loopback-bound, so scrapers need no token.
+    private void metrics(Context ctx) {
+        StringWriter body = new StringWriter();
+        Metrics.getInstance().writePrometheus(new PrintWriter(body), JobStore.getInstance().getStatusSummary());
+        ctx.contentType("text/plain; version=0.0.4; charset=utf-8").result(body.toString());
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.queuectl.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram in the style of HdrHistogram: every power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so any recorded value is known to within 12.5%.
+ * Buckets include their upper edge, as Prometheus {@code le} buckets do, so counts at powers of
+ * two are exact. Recording is one array increment plus two adders and never allocates.
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(slotOf(v));
+        count.increment();
+        sum.add(v);
+        long seen;
+        while (v > (seen = max.get()) && !max.compareAndSet(seen, v)) {
+            // retry
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Number of recorded values at most {@code bound}. Exact when {@code bound} is a power of two.
+     */
+    public long countAtMost(long bound) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS && upperBound(i) <= bound; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Upper edge of the bucket holding the {@code q}-quantile, or 0 if nothing was recorded.
+     */
+    public long quantile(double q) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) {
+                return Math.min(max(), upperBound(i));
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Slot holding {@code value}: slot i covers (upperBound(i - 1), upperBound(i)], and slot 0
+     * also takes 0.
+     */
+    static int slotOf(long value) {
+        return value == 0 ? 0 : bucketOf(value - 1);
+    }
+
+    static long upperBound(int slot) {
+        return slot + 1 < BUCKETS ? lowerBound(slot + 1) : Long.MAX_VALUE;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return shift >= 60 ? Long.MAX_VALUE : mantissa << shift;
+    }
+}
@@ -0,0 +1,224 @@
+package com.queuectl.metrics;
+
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.queuectl.model.Job;
+import com.queuectl.model.JobState;
+
+/**
+ * In-memory metrics for the worker process. Everything is recorded from the worker hot path
+ * with adders and {@link Histogram}s, never written to the database, and lost on restart.
+ * Times are recorded in microseconds and exported in seconds.
+ */
+public final class Metrics {
+    /** How a job attempt ended. */
+    public enum Outcome { COMPLETED, RETRY, DEAD }
+
+    // Prometheus bucket edges: 64us up to about 4.8h, doubling.
+    private static final int FIRST_EDGE_EXPONENT = 6;
+    private static final int LAST_EDGE_EXPONENT = 34;
+    private static Metrics instance;
+
+    private final Histogram claimLatency = new Histogram();
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder emptyClaims = new LongAdder();
+    private final LongAdder completionCommits = new LongAdder();
+    private final LongAdder completions = new LongAdder();
+    private final ConcurrentMap<Integer, PriorityMetrics> byPriority = new ConcurrentHashMap<>();
+    private volatile long collectingSince;
+
+    private Metrics() {}
+
+    public static synchronized Metrics getInstance() {
+        if (instance == null) {
+            instance = new Metrics();
+        }
+        return instance;
+    }
+
+    /**
+     * Marks this process as a worker process whose metrics are worth reporting.
+     */
+    public void startCollecting() {
+        collectingSince = System.currentTimeMillis();
+    }
+
+    public boolean isCollecting() {
+        return collectingSince != 0;
+    }
+
+    public long collectingSince() {
+        return collectingSince;
+    }
+
+    /**
+     * Records one claim round trip and how long each returned job had been ready. A job counts
+     * as ready from its creation, or from its scheduled/retry time if that is later.
+     */
+    public void recordClaim(long latencyNanos, Iterable<Job> jobs, long claimedAtMillis) {
+        claimLatency.record(latencyNanos / 1_000);
+        claims.increment();
+        boolean empty = true;
+        for (Job job : jobs) {
+            empty = false;
+            long readyAt = Math.max(job.getCreatedAt(), job.getNextExecutionTime());
+            forPriority(job.getPriority()).queueWait.record((claimedAtMillis - readyAt) * 1_000);
+        }
+        if (empty) {
+            emptyClaims.increment();
+        }
+    }
+
+    public void recordExecution(Job job, long elapsedNanos, Outcome outcome, boolean timedOut) {
+        PriorityMetrics metrics = forPriority(job.getPriority());
+        metrics.execution.record(elapsedNanos / 1_000);
+        switch (outcome) {
+            case COMPLETED:
+                metrics.completed.increment();
+                break;
+            case RETRY:
+                metrics.retried.increment();
+                break;
+            case DEAD:
+                metrics.dead.increment();
+                break;
+            default:
+                break;
+        }
+        if (timedOut) {
+            metrics.timedOut.increment();
+        }
+    }
+
+    /**
+     * Records one group commit of {@code size} job outcomes.
+     */
+    public void recordCompletionBatch(int size) {
+        completionCommits.increment();
+        completions.add(size);
+    }
+
+    private PriorityMetrics forPriority(int priority) {
+        PriorityMetrics metrics = byPriority.get(priority);
+        return metrics != null ? metrics : byPriority.computeIfAbsent(priority, p -> new PriorityMetrics());
+    }
+
+    /**
+     * Prometheus text exposition format, version 0.0.4. {@code queueDepth} is added as a gauge
+     * when given.
+     */
+    public void writePrometheus(PrintWriter out, Map<JobState, Integer> queueDepth) {
+        Map<Integer, PriorityMetrics> priorities = new TreeMap<>(byPriority);
+
+        header(out, "queuectl_claim_duration_seconds", "histogram", "Time taken by one claim transaction.");
+        histogram(out, "queuectl_claim_duration_seconds", "", claimLatency);
+        header(out, "queuectl_claims_total", "counter", "Claim transactions run.");
+        out.printf("queuectl_claims_total %d%n", claims.sum());
+        header(out, "queuectl_claims_empty_total", "counter", "Claim transactions that found no ready job.");
+        out.printf("queuectl_claims_empty_total %d%n", emptyClaims.sum());
+        header(out, "queuectl_completion_commits_total", "counter", "Transactions that recorded job outcomes.");
+        out.printf("queuectl_completion_commits_total %d%n", completionCommits.sum());
+        header(out, "queuectl_completions_total", "counter", "Job outcomes recorded by those transactions.");
+        out.printf("queuectl_completions_total %d%n", completions.sum());
+
+        header(out, "queuectl_queue_wait_seconds", "histogram", "Time a job was ready before a worker claimed it.");
+        priorities.forEach((p, m) -> histogram(out, "queuectl_queue_wait_seconds", label(p), m.queueWait));
+        header(out, "queuectl_execution_seconds", "histogram", "Wall-clock time of one job attempt.");
+        priorities.forEach((p, m) -> histogram(out, "queuectl_execution_seconds", label(p), m.execution));
+
+        counter(out, priorities, "queuectl_jobs_completed_total", "Attempts that succeeded.", m -> m.completed);
+        counter(out, priorities, "queuectl_jobs_retried_total", "Failed attempts scheduled for retry.", m -> m.retried);
+        counter(out, priorities, "queuectl_jobs_dead_total", "Jobs moved to the dead letter queue.", m -> m.dead);
+        counter(out, priorities, "queuectl_jobs_timed_out_total", "Attempts killed by their timeout.", m -> m.timedOut);
+
+        if (queueDepth != null) {
+            header(out, "queuectl_jobs", "gauge", "Jobs currently in each state.");
+            for (JobState state : JobState.values()) {
+                out.printf("queuectl_jobs{state=\"%s\"} %d%n", state.name(), queueDepth.getOrDefault(state, 0));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Human-readable percentiles, for {@code queuectl status --metrics}.
+     */
+    public void writeSummary(PrintWriter out) {
+        out.printf("%-26s %8s %10s %10s %10s %10s%n", "", "count", "p50", "p95", "p99", "max");
+        summaryRow(out, "claim latency", claimLatency);
+        new TreeMap<>(byPriority).forEach((p, m) -> {
+            summaryRow(out, "queue wait [priority " + p + "]", m.queueWait);
+            summaryRow(out, "execution  [priority " + p + "]", m.execution);
+        });
+        out.println();
+        out.printf("%-12s %10s %10s %10s %10s%n", "priority", "completed", "retried", "dead", "timed out");
+        new TreeMap<>(byPriority).forEach((p, m) -> out.printf("%-12d %10d %10d %10d %10d%n",
+                p, m.completed.sum(), m.retried.sum(), m.dead.sum(), m.timedOut.sum()));
+        long commits = completionCommits.sum();
+        if (commits > 0) {
+            out.printf("%nOutcomes recorded: %d in %d commit(s), %.1f per commit%n",
+                    completions.sum(), commits, completions.sum() / (double) commits);
+        }
+    }
+
+    private static void summaryRow(PrintWriter out, String name, Histogram h) {
+        out.printf("%-26s %8d %10s %10s %10s %10s%n", name, h.count(),
+                micros(h.quantile(0.50)), micros(h.quantile(0.95)), micros(h.quantile(0.99)), micros(h.max()));
+    }
+
+    private static String micros(long us) {
+        if (us < 1_000) {
+            return us + "us";
+        }
+        if (us < 1_000_000) {
+            return String.format("%.1fms", us / 1_000.0);
+        }
+        return String.format("%.2fs", us / 1_000_000.0);
+    }
+
+    private static String label(int priority) {
+        return "priority=\"" + priority + "\"";
+    }
+
+    private static void header(PrintWriter out, String name, String type, String help) {
+        out.printf("# HELP %s %s%n# TYPE %s %s%n", name, help, name, type);
+    }
+
+    private static void histogram(PrintWriter out, String name, String labels, Histogram h) {
+        String sep = labels.isEmpty() ? "" : ",";
+        for (int e = FIRST_EDGE_EXPONENT; e <= LAST_EDGE_EXPONENT; e++) {
+            long edge = 1L << e;
+            out.printf("%s_bucket{%s%sle=\"%s\"} %d%n", name, labels, sep, seconds(edge), h.countAtMost(edge));
+        }
+        out.printf("%s_bucket{%s%sle=\"+Inf\"} %d%n", name, labels, sep, h.count());
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.printf("%s_sum%s %s%n", name, braces, seconds(h.sum()));
+        out.printf("%s_count%s %d%n", name, braces, h.count());
+    }
+
+    private static void counter(PrintWriter out, Map<Integer, PriorityMetrics> priorities, String name, String help,
+                                Function<PriorityMetrics, LongAdder> field) {
+        header(out, name, "counter", help);
+        priorities.forEach((p, m) -> out.printf("%s{%s} %d%n", name, label(p), field.apply(m).sum()));
+    }
+
+    private static String seconds(long micros) {
+        return BigDecimal.valueOf(micros, 6).stripTrailingZeros().toPlainString();
+    }
+
+    private static final class PriorityMetrics {
+        final Histogram queueWait = new Histogram();
+        final Histogram execution = new Histogram();
+        final LongAdder completed = new LongAdder();
+        final LongAdder retried = new LongAdder();
+        final LongAdder dead = new LongAdder();
+        final LongAdder timedOut = new LongAdder();
+    }
+}
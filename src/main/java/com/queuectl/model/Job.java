@@ -1,10 +1,15 @@
 package com.queuectl.model;
 
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Job {
+    public static final String DEFAULT_QUEUE = "default";
+
     private String id;
     private String command;
     private JobState state;
@@ -27,6 +32,42 @@ public class Job {
 
     @JsonProperty("timeout")
     private int timeout = 300;
+
+    @JsonProperty("queue")
+    private String queue;
+
+    @JsonProperty("group")
+    private String group;
+
+    @JsonProperty(value = "effective_priority", access = JsonProperty.Access.READ_ONLY)
+    private int effectivePriority;
+
+    @JsonProperty(value = "lease_expires_at", access = JsonProperty.Access.READ_ONLY)
+    private long leaseExpiresAt;
+
+    @JsonProperty("depends_on")
+    private List<String> dependsOn;
+
+    @JsonProperty(value = "pending_parents", access = JsonProperty.Access.READ_ONLY)
+    private int pendingParents;
+
+    @JsonProperty("dedupe_key")
+    private String dedupeKey;
+
+    @JsonIgnore
+    private long dedupeExpiresAt = Long.MAX_VALUE;
+
+    @JsonIgnore
+    private boolean duplicate;
+
+    @JsonProperty(value = "run_at", access = JsonProperty.Access.WRITE_ONLY)
+    private Long runAt;
+
+    @JsonProperty(value = "delay", access = JsonProperty.Access.WRITE_ONLY)
+    private int delay;
+
+    @JsonProperty(value = "worker_id", access = JsonProperty.Access.READ_ONLY)
+    private String workerId;
     
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -50,10 +91,35 @@ public class Job {
     public void setPriority(int priority) { this.priority = priority; }
     public int getTimeout() { return timeout; }
     public void setTimeout(int timeout) { this.timeout = timeout; }
+    public String getQueue() { return queue; }
+    public void setQueue(String queue) { this.queue = queue; }
+    public String getGroup() { return group; }
+    public void setGroup(String group) { this.group = group; }
+    public int getEffectivePriority() { return effectivePriority; }
+    public void setEffectivePriority(int effectivePriority) { this.effectivePriority = effectivePriority; }
+    public long getLeaseExpiresAt() { return leaseExpiresAt; }
+    public void setLeaseExpiresAt(long leaseExpiresAt) { this.leaseExpiresAt = leaseExpiresAt; }
+    public List<String> getDependsOn() { return dependsOn; }
+    public void setDependsOn(List<String> dependsOn) { this.dependsOn = dependsOn; }
+    public int getPendingParents() { return pendingParents; }
+    public void setPendingParents(int pendingParents) { this.pendingParents = pendingParents; }
+    public String getDedupeKey() { return dedupeKey; }
+    public void setDedupeKey(String dedupeKey) { this.dedupeKey = dedupeKey; }
+    public long getDedupeExpiresAt() { return dedupeExpiresAt; }
+    public void setDedupeExpiresAt(long dedupeExpiresAt) { this.dedupeExpiresAt = dedupeExpiresAt; }
+    /** Set by enqueue when the dedupe key was taken; the id is then the existing job's. */
+    public boolean isDuplicate() { return duplicate; }
+    public void setDuplicate(boolean duplicate) { this.duplicate = duplicate; }
+    public Long getRunAt() { return runAt; }
+    public void setRunAt(Long runAt) { this.runAt = runAt; }
+    public int getDelay() { return delay; }
+    public void setDelay(int delay) { this.delay = delay; }
+    public String getWorkerId() { return workerId; }
+    public void setWorkerId(String workerId) { this.workerId = workerId; }
 
     @Override
     public String toString() {
-        return String.format("Job[ID=%s, State=%s, Prio=%d, Attempts=%d, Command=%s]",
-            id, state, priority, attempts, command);
+        return String.format("Job[ID=%s, Queue=%s, State=%s, Prio=%d, Attempts=%d, Command=%s]",
+            id, queue, state, priority, attempts, command);
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.queuectl.model;
 
 public enum JobState {
     PENDING,
+    SCHEDULED,
+    BLOCKED,
     PROCESSING,
     FAILED,
     COMPLETED,
@@ -0,0 +1,128 @@
+package com.queuectl.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.queuectl.metrics.Metrics;
+import com.queuectl.model.Job;
+
+/**
+ * Group commit for the outcomes of finished runs. Workers hand their job to {@link #complete}
+ * and block; a single writer thread takes everything queued, waits up to
+ * {@code completion-linger} (default 0) for more, and writes up to
+ * {@code completion-batch-size} (default 256) outcomes in one transaction. While one batch
+ * commits, the next one queues up, so under load many workers share each commit without any
+ * added wait.
+ *
+ * A run is acknowledged only when its batch has committed: the worker does not move on, free its
+ * queue slot or schedule the retry before that. If the process dies first, the job is still
+ * PROCESSING under this worker's lease and is run again once the lease expires.
+ */
+public class CompletionWriter {
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static CompletionWriter instance;
+
+    private final JobStore jobStore = JobStore.getInstance();
+    private final ConfigService config = ConfigService.getInstance();
+    private final Metrics metrics = Metrics.getInstance();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private Thread writer;
+
+    private static final class Pending {
+        final Job job;
+        final CompletableFuture<Boolean> committed = new CompletableFuture<>();
+
+        Pending(Job job) {
+            this.job = job;
+        }
+    }
+
+    private CompletionWriter() {}
+
+    public static synchronized CompletionWriter getInstance() {
+        if (instance == null) {
+            instance = new CompletionWriter();
+        }
+        return instance;
+    }
+
+    /**
+     * Records the outcome of {@code job}, fenced like {@link JobStore#finishJob} on the worker
+     * that claimed it, and waits for the commit. Returns false if the lease was lost or the write
+     * failed.
+     */
+    public boolean complete(Job job) {
+        startWriter();
+        Pending pending = new Pending(job);
+        queue.add(pending);
+        try {
+            return pending.committed.join();
+        } catch (RuntimeException e) {
+            System.err.println("Completion Error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(this::drain, "queuectl-completions");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                int limit = Math.max(1, config.getConfigAsInt("completion-batch-size", DEFAULT_BATCH_SIZE));
+                long linger = config.getConfigAsDuration("completion-linger", Duration.ZERO).toNanos();
+                long deadline = System.nanoTime() + linger;
+                queue.drainTo(batch, limit - batch.size());
+                while (batch.size() < limit && linger > 0) {
+                    long left = deadline - System.nanoTime();
+                    Pending next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, limit - batch.size());
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                // Only daemon shutdown interrupts us; nobody is left waiting.
+                return;
+            } catch (Throwable t) {
+                batch.forEach(pending -> pending.committed.completeExceptionally(t));
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<Job> jobs = new ArrayList<>(batch.size());
+        batch.forEach(pending -> jobs.add(pending.job));
+        boolean[] recorded;
+        try {
+            recorded = jobStore.finishJobs(jobs);
+        } catch (Exception e) {
+            // One bad row should not cost the others their outcome; fall back to one at a time.
+            System.err.println("Completion Error, retrying jobs one by one: " + e.getMessage());
+            recorded = new boolean[jobs.size()];
+            for (int i = 0; i < jobs.size(); i++) {
+                recorded[i] = jobStore.finishJob(jobs.get(i), jobs.get(i).getWorkerId());
+            }
+        }
+        metrics.recordCompletionBatch(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).committed.complete(recorded[i]);
+        }
+    }
+}
@@ -4,9 +4,40 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Process-wide view of the {@code config} table. Reads are served from an in-memory snapshot;
+ * at most once per {@link #REFRESH_INTERVAL_NANOS} a reader checks the {@code config_version}
+ * counter (bumped by triggers on every change, from any process) and reloads if it moved.
+ * Changes made elsewhere are therefore visible here within about a second.
+ *
+ * Each value is parsed once per reload into every form it has (int, long, double, boolean,
+ * duration), so typed lookups on the worker hot path neither parse nor allocate.
+ */
 public class ConfigService {
+    private static final long REFRESH_INTERVAL_NANOS = 1_000_000_000L;
+    private static ConfigService instance;
+
     private final JobStore jobStore = JobStore.getInstance();
+    private final AtomicLong nextCheck = new AtomicLong(Long.MIN_VALUE);
+    private final ReentrantLock loading = new ReentrantLock();
+    private volatile Map<String, Setting> snapshot = Map.of();
+    private volatile long version = -1;
+
+    private ConfigService() {}
+
+    public static synchronized ConfigService getInstance() {
+        if (instance == null) {
+            instance = new ConfigService();
+        }
+        return instance;
+    }
 
     public void setConfig(String key, String value) {
         String sql = "REPLACE INTO config (key, value) VALUES (?, ?)";
@@ -18,32 +49,190 @@ public class ConfigService {
         } catch (SQLException e) {
             System.err.println("Config Error: " + e.getMessage());
         }
+        // Our own writes are visible immediately.
+        nextCheck.set(Long.MIN_VALUE);
     }
 
     public String getConfig(String key) {
-        String sql = "SELECT value FROM config WHERE key = ?";
-        try (Connection conn = jobStore.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, key);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("value");
+        Setting setting = current().get(key);
+        return setting != null ? setting.raw : null;
+    }
+
+    public int getConfigAsInt(String key, int defaultValue) {
+        Setting setting = current().get(key);
+        return setting != null && setting.isInt ? setting.intValue : defaultValue;
+    }
+
+    public long getConfigAsLong(String key, long defaultValue) {
+        Setting setting = current().get(key);
+        return setting != null && setting.isLong ? setting.longValue : defaultValue;
+    }
+
+    public double getConfigAsDouble(String key, double defaultValue) {
+        Setting setting = current().get(key);
+        return setting != null && setting.isDouble ? setting.doubleValue : defaultValue;
+    }
+
+    /**
+     * Accepts true/false, yes/no, on/off and 1/0.
+     */
+    public boolean getConfigAsBoolean(String key, boolean defaultValue) {
+        Setting setting = current().get(key);
+        return setting != null && setting.booleanValue != null ? setting.booleanValue : defaultValue;
+    }
+
+    /**
+     * Accepts a number with an optional unit: {@code ms}, {@code s}, {@code m}, {@code h} or
+     * {@code d}. A bare number is seconds.
+     */
+    public Duration getConfigAsDuration(String key, Duration defaultValue) {
+        Setting setting = current().get(key);
+        return setting != null && setting.duration != null ? setting.duration : defaultValue;
+    }
+
+    static Duration parseDuration(String value) {
+        int split = 0;
+        while (split < value.length() && Character.isDigit(value.charAt(split))) {
+            split++;
+        }
+        if (split == 0) {
+            return null;
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(value.substring(0, split));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        switch (value.substring(split).trim()) {
+            case "ms": return Duration.ofMillis(amount);
+            case "": case "s": return Duration.ofSeconds(amount);
+            case "m": return Duration.ofMinutes(amount);
+            case "h": return Duration.ofHours(amount);
+            case "d": return Duration.ofDays(amount);
+            default: return null;
+        }
+    }
+
+    /**
+     * Whether any setting's key starts with {@code prefix}.
+     */
+    public boolean hasConfigWithPrefix(String prefix) {
+        for (String key : current().keySet()) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Setting> current() {
+        if (version == -1) {
+            load();
+        }
+        long now = System.nanoTime();
+        long due = nextCheck.get();
+        // One reader per interval pays for the version check; everyone else reads the snapshot.
+        if (now - due >= 0 || due == Long.MIN_VALUE) {
+            if (nextCheck.compareAndSet(due, now + REFRESH_INTERVAL_NANOS)) {
+                refresh();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Loads the first snapshot. Readers wait for it rather than see an empty map, which would
+     * hand every setting its default.
+     */
+    private void load() {
+        loading.lock();
+        try {
+            if (version == -1) {
+                refresh();
+                nextCheck.set(System.nanoTime() + REFRESH_INTERVAL_NANOS);
             }
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    private void refresh() {
+        try (Connection conn = jobStore.getReadConnection()) {
+            long latest;
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT version FROM config_version WHERE id = 1");
+                 ResultSet rs = pstmt.executeQuery()) {
+                latest = rs.next() ? rs.getLong(1) : 0;
+            }
+            if (latest == version) {
+                return;
+            }
+            Map<String, Setting> loaded = new HashMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT key, value FROM config");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String value = rs.getString("value");
+                    if (value != null) {
+                        loaded.put(rs.getString("key"), new Setting(value));
+                    }
+                }
+            }
+            // A change landing between the two reads leaves version behind, which only costs a reload.
+            snapshot = Map.copyOf(loaded);
+            version = latest;
         } catch (SQLException e) {
             System.err.println("Config Error: " + e.getMessage());
         }
-        return null;
     }
 
-    public int getConfigAsInt(String key, int defaultValue) {
-        String value = getConfig(key);
-        if (value != null) {
+    /** One value in every form the typed getters hand out; the flags mark forms that parsed. */
+    private static final class Setting {
+        final String raw;
+        final boolean isInt;
+        final int intValue;
+        final boolean isLong;
+        final long longValue;
+        final boolean isDouble;
+        final double doubleValue;
+        final Boolean booleanValue;
+        final Duration duration;
+
+        Setting(String raw) {
+            this.raw = raw;
+            long l = 0;
+            boolean parsedLong = false;
+            try {
+                l = Long.parseLong(raw);
+                parsedLong = true;
+            } catch (NumberFormatException e) {
+                // not a whole number
+            }
+            this.isLong = parsedLong;
+            this.longValue = l;
+            this.isInt = parsedLong && l == (int) l;
+            this.intValue = isInt ? (int) l : 0;
+            double d = 0;
+            boolean parsedDouble = false;
             try {
-                return Integer.parseInt(value);
+                d = Double.parseDouble(raw);
+                parsedDouble = true;
             } catch (NumberFormatException e) {
-                // Ignore
+                // not a number
+            }
+            this.isDouble = parsedDouble;
+            this.doubleValue = d;
+            String normalized = raw.trim().toLowerCase(Locale.ROOT);
+            switch (normalized) {
+                case "true": case "yes": case "on": case "1":
+                    this.booleanValue = Boolean.TRUE;
+                    break;
+                case "false": case "no": case "off": case "0":
+                    this.booleanValue = Boolean.FALSE;
+                    break;
+                default:
+                    this.booleanValue = null;
             }
+            this.duration = parseDuration(normalized);
         }
-        return defaultValue;
     }
-}
\ No newline at end of file
+}
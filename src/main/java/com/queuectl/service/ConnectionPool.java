@@ -0,0 +1,297 @@
+package com.queuectl.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sqlite.SQLiteConfig;
+
+/**
+ * A small fixed-size pool of SQLite connections.
+ *
+ * Borrowed connections are proxies: closing one hands the physical connection back to the pool,
+ * and {@code prepareStatement(String)} returns a statement cached on that physical connection,
+ * so hot queries are parsed once per connection instead of once per call. Each connection keeps
+ * the {@value #STATEMENT_CACHE_SIZE} most recently used statements; SQL built from values (IN
+ * lists, multi-row inserts) would otherwise grow the cache for as long as the process runs.
+ */
+class ConnectionPool {
+    private static final long BORROW_TIMEOUT_MS = 30_000;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private final String name;
+    private final String url;
+    private final SQLiteConfig config;
+    private final int maxSize;
+    private final BlockingQueue<PhysicalConnection> idle;
+    private final AtomicInteger opened = new AtomicInteger();
+    private volatile boolean closed;
+
+    ConnectionPool(String name, String url, SQLiteConfig config, int maxSize) {
+        this.name = name;
+        this.url = url;
+        this.config = config;
+        this.maxSize = maxSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool '" + name + "' is closed");
+        }
+        PhysicalConnection physical = idle.poll();
+        if (physical == null) {
+            if (opened.incrementAndGet() <= maxSize) {
+                try {
+                    physical = new PhysicalConnection(DriverManager.getConnection(url, config.toProperties()));
+                } catch (SQLException e) {
+                    opened.decrementAndGet();
+                    throw e;
+                }
+            } else {
+                opened.decrementAndGet();
+                try {
+                    physical = idle.poll(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a connection from pool '" + name + "'");
+                }
+                if (physical == null) {
+                    throw new SQLException("Timed out waiting for a connection from pool '" + name + "'");
+                }
+            }
+        }
+        return physical.lease();
+    }
+
+    void close() {
+        closed = true;
+        PhysicalConnection physical;
+        while ((physical = idle.poll()) != null) {
+            physical.closeQuietly();
+        }
+    }
+
+    private void release(PhysicalConnection physical) {
+        try {
+            physical.resetStatements();
+            if (!physical.connection.getAutoCommit()) {
+                physical.connection.rollback();
+                physical.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(physical);
+            return;
+        }
+        if (closed || !idle.offer(physical)) {
+            discard(physical);
+        }
+    }
+
+    private void discard(PhysicalConnection physical) {
+        opened.decrementAndGet();
+        physical.closeQuietly();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class PhysicalConnection {
+        private final Connection connection;
+        private final List<CachedStatement> evictedInUse = new ArrayList<>();
+        private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= STATEMENT_CACHE_SIZE) {
+                    return false;
+                }
+                if (eldest.getValue().inUse) {
+                    // Still leased within this borrow; close it once the connection comes back.
+                    evictedInUse.add(eldest.getValue());
+                } else {
+                    closeStatement(eldest.getValue());
+                }
+                return true;
+            }
+        };
+
+        PhysicalConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new LeaseHandler(this));
+        }
+
+        PreparedStatement prepare(String sql, Connection owner) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (cached == null) {
+                cached = new CachedStatement(connection.prepareStatement(sql));
+                statements.put(sql, cached);
+            } else if (cached.inUse) {
+                // Same SQL prepared twice within one lease; hand out a throwaway statement.
+                return connection.prepareStatement(sql);
+            }
+            cached.inUse = true;
+            return cached.lease(owner);
+        }
+
+        void resetStatements() throws SQLException {
+            for (CachedStatement cached : evictedInUse) {
+                closeStatement(cached);
+            }
+            evictedInUse.clear();
+            for (CachedStatement cached : statements.values()) {
+                if (cached.inUse) {
+                    cached.statement.clearParameters();
+                    cached.statement.clearBatch();
+                    cached.inUse = false;
+                }
+            }
+        }
+
+        void closeQuietly() {
+            for (CachedStatement cached : evictedInUse) {
+                closeStatement(cached);
+            }
+            evictedInUse.clear();
+            for (CachedStatement cached : statements.values()) {
+                closeStatement(cached);
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static void closeStatement(CachedStatement cached) {
+        try {
+            cached.statement.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+
+    private class LeaseHandler implements InvocationHandler {
+        private final PhysicalConnection physical;
+        private boolean returned;
+
+        LeaseHandler(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.connection.isClosed();
+                case "prepareStatement":
+                    if (returned) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    if (args.length == 1) {
+                        return physical.prepare((String) args[0], (Connection) proxy);
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+            }
+            return ConnectionPool.invoke(physical.connection, method, args);
+        }
+    }
+
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement lease(Connection owner) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, new StatementHandler(this, owner));
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection owner;
+        private ResultSet lastResult;
+        private boolean returned;
+
+        StatementHandler(CachedStatement cached, Connection owner) {
+            this.cached = cached;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        if (lastResult != null) {
+                            lastResult.close();
+                        }
+                        cached.statement.clearParameters();
+                        cached.statement.clearBatch();
+                        cached.inUse = false;
+                    }
+                    return null;
+                case "isClosed":
+                    return returned;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (returned) {
+                        throw new SQLException("Statement has been closed");
+                    }
+            }
+            Object result = ConnectionPool.invoke(cached.statement, method, args);
+            if (result instanceof ResultSet) {
+                lastResult = (ResultSet) result;
+            }
+            return result;
+        }
+    }
+}
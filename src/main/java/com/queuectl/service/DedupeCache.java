@@ -0,0 +1,68 @@
+package com.queuectl.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently seen dedupe keys and the job each one resolved to, least recently used first out.
+ * A hit answers an enqueue without touching the database; a miss always goes to the unique
+ * index, which stays the authority. Entries are only trusted until the holder's window ends,
+ * so keys held for as long as their job exists are not cached.
+ */
+final class DedupeCache {
+    private static final int DEFAULT_CAPACITY = 10_000;
+
+    static final class Holder {
+        final String jobId;
+        final long expiresAt;
+
+        Holder(String jobId, long expiresAt) {
+            this.jobId = jobId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Holder> entries;
+
+    DedupeCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    DedupeCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Holder> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * The job holding {@code key} at {@code now}, or null if unknown here.
+     */
+    synchronized Holder get(String key, long now) {
+        Holder holder = entries.get(key);
+        if (holder == null) {
+            return null;
+        }
+        if (holder.expiresAt <= now) {
+            entries.remove(key);
+            return null;
+        }
+        return holder;
+    }
+
+    synchronized void put(String key, String jobId, long expiresAt) {
+        entries.put(key, new Holder(jobId, expiresAt));
+    }
+
+    /**
+     * Forgets {@code key} if it still points at {@code jobId}, once that job is gone.
+     */
+    synchronized void remove(String key, String jobId) {
+        Holder holder = entries.get(key);
+        if (holder != null && holder.jobId.equals(jobId)) {
+            entries.remove(key);
+        }
+    }
+}
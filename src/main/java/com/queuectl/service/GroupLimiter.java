@@ -0,0 +1,232 @@
+package com.queuectl.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.queuectl.model.Job;
+
+/**
+ * Concurrency and rate limits for job groups, enforced when jobs are claimed so that workers
+ * pass over a saturated group's jobs instead of claiming them and waiting.
+ * <ul>
+ *   <li>{@code group-<name>-max-jobs} caps how many of the group's jobs run at once across all
+ *       processes, counted from its PROCESSING jobs.</li>
+ *   <li>{@code group-<name>-rate} caps how many of its jobs start per second, through a token
+ *       bucket of {@code group-<name>-burst} tokens (default: the rate, at least 1) kept in
+ *       {@code group_buckets}.</li>
+ * </ul>
+ * Both are checked and charged inside the claim transaction, so processes sharing the database
+ * share the limits. In front of that, each process counts the grouped jobs it runs and remembers
+ * until when a group is known to be full, so claims skip a saturated group without asking the
+ * database again, and workers are woken when it is worth another look.
+ */
+public class GroupLimiter {
+    static final String CONFIG_PREFIX = "group-";
+    // Other processes may free a full group's slots without telling us; look again after this.
+    private static final long CONCURRENCY_RECHECK_MILLIS = 250;
+    private static GroupLimiter instance;
+
+    private final ConfigService config = ConfigService.getInstance();
+    // Until when a group is known to be full. A finished job frees a slot but adds no tokens, so
+    // only slot blocks are lifted early.
+    private final Map<String, Long> slotsBlockedUntil = new ConcurrentHashMap<>();
+    private final Map<String, Long> tokensBlockedUntil = new ConcurrentHashMap<>();
+    private final Map<String, Integer> running = new ConcurrentHashMap<>();
+    // Config keys per group, built once instead of on every claim and completion.
+    private final Map<String, String> maxJobsKeys = new ConcurrentHashMap<>();
+
+    private GroupLimiter() {}
+
+    public static synchronized GroupLimiter getInstance() {
+        if (instance == null) {
+            instance = new GroupLimiter();
+        }
+        return instance;
+    }
+
+    /**
+     * Whether any group limit is configured. Without one, claims take the plain path.
+     */
+    boolean hasLimits() {
+        return config.hasConfigWithPrefix(CONFIG_PREFIX);
+    }
+
+    /**
+     * Groups this process already knows to be full at {@code now}.
+     */
+    Set<String> saturated(long now) {
+        Set<String> groups = new HashSet<>();
+        addBlocked(groups, slotsBlockedUntil, now);
+        addBlocked(groups, tokensBlockedUntil, now);
+        running.forEach((group, count) -> {
+            int maxJobs = maxJobs(group);
+            if (maxJobs > 0 && count >= maxJobs) {
+                groups.add(group);
+            }
+        });
+        return groups;
+    }
+
+    /**
+     * Starts checking one claim transaction's candidates against the limits.
+     */
+    Claim begin(Connection conn, long now) {
+        return new Claim(conn, now);
+    }
+
+    /**
+     * Counts claimed grouped jobs as running in this process.
+     */
+    void claimed(List<Job> jobs) {
+        for (Job job : jobs) {
+            if (job.getGroup() != null) {
+                running.merge(job.getGroup(), 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Frees the slot of a grouped job claimed here, once it has run or been released.
+     */
+    public void finished(Job job) {
+        String group = job.getGroup();
+        if (group == null) {
+            return;
+        }
+        running.computeIfPresent(group, (name, count) -> count > 1 ? count - 1 : null);
+        int maxJobs = maxJobs(group);
+        if (maxJobs > 0 && slotsBlockedUntil.remove(group) != null) {
+            // Workers that found this group full may be parked with nothing else to do.
+            WakeupService.getInstance().signal();
+        }
+    }
+
+    private int maxJobs(String group) {
+        return config.getConfigAsInt(maxJobsKeys.computeIfAbsent(group, g -> CONFIG_PREFIX + g + "-max-jobs"), 0);
+    }
+
+    private static void addBlocked(Set<String> groups, Map<String, Long> blockedUntil, long now) {
+        blockedUntil.forEach((group, until) -> {
+            if (until > now) {
+                groups.add(group);
+            }
+        });
+    }
+
+    private static void block(Map<String, Long> blockedUntil, String group, long until) {
+        blockedUntil.merge(group, until, Math::max);
+        WakeupService.getInstance().signalAt(until);
+    }
+
+    /**
+     * The limit state of the groups seen in one claim transaction, read from the database the
+     * first time each group comes up.
+     */
+    final class Claim {
+        private final Connection conn;
+        private final long now;
+        private final Map<String, GroupState> groups = new HashMap<>();
+
+        private Claim(Connection conn, long now) {
+            this.conn = conn;
+            this.now = now;
+        }
+
+        /**
+         * Takes one slot and one token for a job of {@code group}. Returns false, and marks the
+         * group full, if either has run out.
+         */
+        boolean tryTake(String group) throws SQLException {
+            if (group == null) {
+                return true;
+            }
+            GroupState state = groups.get(group);
+            if (state == null) {
+                state = load(group);
+                groups.put(group, state);
+            }
+            if (state.slots == 0) {
+                block(slotsBlockedUntil, group, now + CONCURRENCY_RECHECK_MILLIS);
+                return false;
+            }
+            if (state.rate > 0 && state.tokens < 1) {
+                block(tokensBlockedUntil, group, now + (long) Math.ceil((1 - state.tokens) * 1000 / state.rate));
+                return false;
+            }
+            if (state.slots > 0) {
+                state.slots--;
+            }
+            if (state.rate > 0) {
+                state.tokens--;
+                state.charged = true;
+            }
+            return true;
+        }
+
+        /**
+         * Writes back the buckets this claim took tokens from.
+         */
+        void commit() throws SQLException {
+            String sql = "INSERT INTO group_buckets (job_group, tokens, updated_at) VALUES (?, ?, ?) " +
+                    "ON CONFLICT(job_group) DO UPDATE SET tokens = excluded.tokens, updated_at = excluded.updated_at";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Map.Entry<String, GroupState> entry : groups.entrySet()) {
+                    if (entry.getValue().charged) {
+                        pstmt.setString(1, entry.getKey());
+                        pstmt.setDouble(2, entry.getValue().tokens);
+                        pstmt.setLong(3, now);
+                        pstmt.addBatch();
+                    }
+                }
+                pstmt.executeBatch();
+            }
+        }
+
+        private GroupState load(String group) throws SQLException {
+            GroupState state = new GroupState();
+            int maxJobs = maxJobs(group);
+            if (maxJobs > 0) {
+                String sql = "SELECT COUNT(*) FROM jobs INDEXED BY idx_jobs_group_running " +
+                        "WHERE state = 'PROCESSING' AND job_group = ?";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, group);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        state.slots = Math.max(0, maxJobs - (rs.next() ? rs.getInt(1) : 0));
+                    }
+                }
+            }
+            state.rate = config.getConfigAsDouble(CONFIG_PREFIX + group + "-rate", 0);
+            if (state.rate > 0) {
+                double burst = config.getConfigAsDouble(CONFIG_PREFIX + group + "-burst", Math.max(1, state.rate));
+                state.tokens = burst;
+                String sql = "SELECT tokens, updated_at FROM group_buckets WHERE job_group = ?";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, group);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            double refill = Math.max(0, now - rs.getLong(2)) * state.rate / 1000;
+                            state.tokens = Math.min(burst, rs.getDouble(1) + refill);
+                        }
+                    }
+                }
+            }
+            return state;
+        }
+    }
+
+    private static final class GroupState {
+        /** Free concurrency slots, or -1 without a cap. */
+        int slots = -1;
+        double rate;
+        double tokens;
+        boolean charged;
+    }
+}
@@ -1,24 +1,62 @@
 package com.queuectl.service;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import org.sqlite.SQLiteConfig;
 
 import com.queuectl.model.Job;
 import com.queuectl.model.JobState;
 
 public class JobStore {
-    private static final String DB_URL = "jdbc:sqlite:queuectl.db";
+    /** System property that points queuectl at a different database file. */
+    public static final String DB_PROPERTY = "queuectl.db";
+    public static final String DEFAULT_DB_FILE = "queuectl.db";
+    public static final String DB_FILE = System.getProperty(DB_PROPERTY, DEFAULT_DB_FILE);
+    private static final String DB_URL = "jdbc:sqlite:" + DB_FILE;
+    private static final int WRITE_POOL_SIZE = 4;
+    private static final int READ_POOL_SIZE = 8;
+    private static final int BUSY_TIMEOUT_MS = 10_000;
+    private static final long MMAP_SIZE_BYTES = 256L * 1024 * 1024;
+    /** Lease on claimed jobs for callers that do not pick their own. */
+    public static final long DEFAULT_LEASE_MILLIS = 30_000;
+    private static final Comparator<Job> CLAIM_ORDER = Comparator.comparingInt(Job::getEffectivePriority).reversed()
+            .thenComparingLong(Job::getCreatedAt);
+    /**
+     * Ids of the next ready jobs in one queue; see {@link #readySetSql}. Parameters: queue, limit,
+     * queue, now, limit, limit.
+     */
+    private static final String READY_JOB_IDS = readySetSql("id", 0);
+    /**
+     * How many times a group-limited claim looks again after finding candidates of full groups.
+     */
+    private static final int MAX_GROUP_CLAIM_ROUNDS = 3;
+    /** Pass as {@code outputChars} to read the whole output column. */
+    public static final int FULL_OUTPUT = -1;
+    private static final String LIST_COLUMNS = "id, command, state, attempts, max_retries, created_at, updated_at, " +
+            "next_execution_time, priority, timeout, worker_id, queue, effective_priority, lease_expires_at, pending_parents, dedupe_key, job_group";
     private static JobStore instance;
 
-    private JobStore() {}
+    private final ConnectionPool writePool;
+    private final ConnectionPool readPool;
+    private final DedupeCache dedupeCache = new DedupeCache();
+
+    private JobStore() {
+        this.writePool = new ConnectionPool("write", DB_URL, writeConfig(), WRITE_POOL_SIZE);
+        this.readPool = new ConnectionPool("read", DB_URL, readConfig(), READ_POOL_SIZE);
+    }
 
     public static synchronized JobStore getInstance() {
         if (instance == null) {
@@ -28,57 +66,92 @@ public class JobStore {
     }
 
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+        return writePool.borrow();
+    }
+
+    /**
+     * Connection from the read-only pool. In WAL mode readers never block the writer,
+     * so listing, status and dashboard queries should go through here.
+     */
+    public Connection getReadConnection() throws SQLException {
+        return readPool.borrow();
+    }
+
+    public void close() {
+        readPool.close();
+        writePool.close();
+    }
+
+    private static SQLiteConfig writeConfig() {
+        SQLiteConfig config = baseConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+        return config;
+    }
+
+    private static SQLiteConfig readConfig() {
+        SQLiteConfig config = baseConfig();
+        config.setReadOnly(true);
+        return config;
+    }
+
+    private static SQLiteConfig baseConfig() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(BUSY_TIMEOUT_MS);
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(MMAP_SIZE_BYTES));
+        return config;
     }
     
     public void initializeDatabase() {
-        String jobsTable = "CREATE TABLE IF NOT EXISTS jobs (" +
-                "id TEXT PRIMARY KEY, " +
-                "command TEXT NOT NULL, " +
-                "state TEXT NOT NULL, " +
-                "attempts INTEGER NOT NULL, " +
-                "max_retries INTEGER NOT NULL, " +
-                "created_at INTEGER NOT NULL, " +
-                "updated_at INTEGER NOT NULL, " +
-                "next_execution_time INTEGER NOT NULL, " +
-                "priority INTEGER NOT NULL DEFAULT 0, " +
-                "timeout INTEGER NOT NULL DEFAULT 300, " +
-                "output TEXT" +
-                ");";
-
-        String configTable = "CREATE TABLE IF NOT EXISTS config (" +
-                "key TEXT PRIMARY KEY, " +
-                "value TEXT NOT NULL" +
-                ");";
-
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(jobsTable);
-            stmt.execute(configTable);
+        try (Connection conn = getConnection()) {
+            SchemaMigrations.migrate(conn);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to initialize database", e);
         }
     }
 
+    private static final String INSERT_COLUMNS = "INSERT %s INTO jobs(id, command, state, attempts, max_retries, " +
+            "created_at, updated_at, next_execution_time, " +
+            "priority, timeout, output, queue, effective_priority, aged_at, pending_parents, " +
+            "dedupe_key, dedupe_expires_at, job_group) " +
+            "VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+    /**
+     * Turns an insert of a keyed job into a lookup when the key is held: the no-op update makes
+     * RETURNING hand back the holder's id and expiry instead of nothing.
+     */
+    private static final String ON_DEDUPE_KEY = " ON CONFLICT(dedupe_key) WHERE dedupe_key IS NOT NULL " +
+            "DO UPDATE SET dedupe_key = excluded.dedupe_key RETURNING id, dedupe_expires_at";
+
+    /**
+     * Inserts one job. A job whose dedupe key is already held is not inserted; it is marked
+     * {@link Job#isDuplicate() duplicate}, takes the holder's id and counts as enqueued.
+     *
+     * @throws IllegalArgumentException if {@code depends_on} names a job that does not exist
+     */
     public boolean enqueueJob(Job job) {
-        String sql = "INSERT INTO jobs(id, command, state, attempts, max_retries, " +
-                "created_at, updated_at, next_execution_time, " +
-                "priority, timeout, output) " +
-                "VALUES(?,?,?,?,?,?,?,?,?,?,?)";
+        if (cachedDuplicate(job)) {
+            return true;
+        }
+        String sql = String.format(INSERT_COLUMNS, "");
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, job.getId());
-            pstmt.setString(2, job.getCommand());
-            pstmt.setString(3, job.getState().name());
-            pstmt.setInt(4, job.getAttempts());
-            pstmt.setInt(5, job.getMaxRetries());
-            pstmt.setLong(6, job.getCreatedAt());
-            pstmt.setLong(7, job.getUpdatedAt());
-            pstmt.setLong(8, job.getNextExecutionTime());
-            pstmt.setInt(9, job.getPriority());
-            pstmt.setInt(10, job.getTimeout());
-            pstmt.setString(11, job.getOutput());
-            pstmt.executeUpdate();
+            if (needsInsertOne(job)) {
+                conn.setAutoCommit(false);
+                if (!insertOne(conn, pstmt, sql, job)) {
+                    conn.rollback();
+                    throw new IllegalArgumentException("depends_on names a job that does not exist: " + job.getDependsOn());
+                }
+                conn.commit();
+                rememberDedupeKey(job);
+            } else {
+                bindInsert(pstmt, job);
+                pstmt.executeUpdate();
+            }
+            if (job.getState() != JobState.BLOCKED && !job.isDuplicate()) {
+                WakeupService.getInstance().signalAt(job.getNextExecutionTime());
+            }
             return true;
         } catch (SQLException e) {
             System.err.println("Enqueue Error: " + e.getMessage());
@@ -86,9 +159,234 @@ public class JobStore {
         }
     }
 
+    /**
+     * Inserts all jobs in one transaction. A job whose id already exists, or that depends on a job
+     * that does not exist yet, is skipped rather than failing the batch; the returned flags say
+     * which jobs were actually inserted. Parents may come earlier in the same batch. Jobs whose
+     * dedupe key is held, including by an earlier job in the batch, are flagged as enqueued and
+     * marked {@link Job#isDuplicate() duplicate}.
+     */
+    public boolean[] enqueueBatch(List<Job> jobs) {
+        boolean[] inserted = new boolean[jobs.size()];
+        if (jobs.isEmpty()) {
+            return inserted;
+        }
+        String sql = String.format(INSERT_COLUMNS, "OR IGNORE");
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                List<Integer> batched = new ArrayList<>();
+                for (int i = 0; i < jobs.size(); i++) {
+                    Job job = jobs.get(i);
+                    if (cachedDuplicate(job)) {
+                        inserted[i] = true;
+                    } else if (needsInsertOne(job)) {
+                        // Its parents, or an earlier holder of its key, may be in the rows batched so far.
+                        executeInsertBatch(pstmt, inserted, batched);
+                        inserted[i] = insertOne(conn, pstmt, sql, job);
+                    } else {
+                        bindInsert(pstmt, job);
+                        pstmt.addBatch();
+                        batched.add(i);
+                    }
+                }
+                executeInsertBatch(pstmt, inserted, batched);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            System.err.println("Enqueue Error: " + e.getMessage());
+            return new boolean[jobs.size()];
+        }
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < jobs.size(); i++) {
+            Job job = jobs.get(i);
+            if (inserted[i]) {
+                rememberDedupeKey(job);
+                if (job.getState() != JobState.BLOCKED && !job.isDuplicate()) {
+                    earliest = Math.min(earliest, job.getNextExecutionTime());
+                }
+            }
+        }
+        WakeupService.getInstance().signalAt(earliest);
+        return inserted;
+    }
+
+    /**
+     * Runs the batched inserts; {@code batched} holds the index of each batched job.
+     */
+    private static void executeInsertBatch(PreparedStatement pstmt, boolean[] inserted, List<Integer> batched)
+            throws SQLException {
+        if (batched.isEmpty()) {
+            return;
+        }
+        int[] counts = pstmt.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+            inserted[batched.get(i)] = counts[i] > 0;
+        }
+        batched.clear();
+    }
+
+    private static boolean needsInsertOne(Job job) {
+        return job.getDedupeKey() != null || (job.getDependsOn() != null && !job.getDependsOn().isEmpty());
+    }
+
+    /**
+     * Answers a keyed enqueue from {@link #dedupeCache} when the key is known to be held.
+     */
+    private boolean cachedDuplicate(Job job) {
+        if (job.getDedupeKey() == null) {
+            return false;
+        }
+        DedupeCache.Holder holder = dedupeCache.get(job.getDedupeKey(), job.getCreatedAt());
+        if (holder == null) {
+            return false;
+        }
+        job.setId(holder.jobId);
+        job.setDedupeExpiresAt(holder.expiresAt);
+        job.setDuplicate(true);
+        return true;
+    }
+
+    /**
+     * Caches a committed key until the holder's window ends. A duplicate carries the holder's
+     * expiry. Keys held for as long as their job exists are left to the database, since the job
+     * may be deleted by another process.
+     */
+    private void rememberDedupeKey(Job job) {
+        if (job.getDedupeKey() != null && job.getDedupeExpiresAt() != Long.MAX_VALUE) {
+            dedupeCache.put(job.getDedupeKey(), job.getId(), job.getDedupeExpiresAt());
+        }
+    }
+
+    /**
+     * Inserts a job with parents or a dedupe key inside the caller's transaction.
+     * <ul>
+     *   <li>With {@code depends_on}, the job starts BLOCKED if any parent has not completed yet,
+     *       with {@code pending_parents} counting those parents.</li>
+     *   <li>With {@code dedupe_key}, a key whose window has ended is first taken from the job
+     *       holding it; if the key is still held, nothing is inserted and the job is marked
+     *       duplicate with the holder's id.</li>
+     * </ul>
+     * Returns false, having written nothing, if a parent does not exist or the id is already
+     * taken.
+     */
+    private static boolean insertOne(Connection conn, PreparedStatement insert, String sql, Job job) throws SQLException {
+        List<String> parents = job.getDependsOn() != null ? job.getDependsOn() : List.of();
+        String placeholders = String.join(",", Collections.nCopies(parents.size(), "?"));
+        if (!parents.isEmpty()) {
+            int found;
+            int pending;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT COUNT(*), TOTAL(state <> 'COMPLETED') FROM jobs WHERE id IN (" + placeholders + ")")) {
+                for (int i = 0; i < parents.size(); i++) {
+                    pstmt.setString(i + 1, parents.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    found = rs.getInt(1);
+                    pending = rs.getInt(2);
+                }
+            }
+            if (found != parents.size()) {
+                return false;
+            }
+            if (pending > 0) {
+                job.setState(JobState.BLOCKED);
+            }
+            job.setPendingParents(pending);
+        }
+
+        if (job.getDedupeKey() != null) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE jobs SET dedupe_key = NULL WHERE dedupe_key = ? AND dedupe_expires_at <= ?")) {
+                pstmt.setString(1, job.getDedupeKey());
+                pstmt.setLong(2, job.getCreatedAt());
+                pstmt.executeUpdate();
+            }
+            String id = null;
+            long expiresAt = 0;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql + ON_DEDUPE_KEY)) {
+                bindInsert(pstmt, job);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        id = rs.getString(1);
+                        expiresAt = rs.getLong(2);
+                    }
+                }
+            }
+            if (id == null) {
+                return false;
+            }
+            if (!id.equals(job.getId())) {
+                job.setId(id);
+                job.setDedupeExpiresAt(expiresAt);
+                job.setDuplicate(true);
+                return true;
+            }
+        } else {
+            bindInsert(insert, job);
+            if (insert.executeUpdate() == 0) {
+                return false;
+            }
+        }
+
+        if (!parents.isEmpty()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO job_dependencies (parent_id, child_id) SELECT id, ? FROM jobs WHERE id IN (" + placeholders + ")")) {
+                pstmt.setString(1, job.getId());
+                for (int i = 0; i < parents.size(); i++) {
+                    pstmt.setString(i + 2, parents.get(i));
+                }
+                pstmt.executeUpdate();
+            }
+        }
+        return true;
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, Job job) throws SQLException {
+        pstmt.setString(1, job.getId());
+        pstmt.setString(2, job.getCommand());
+        pstmt.setString(3, job.getState().name());
+        pstmt.setInt(4, job.getAttempts());
+        pstmt.setInt(5, job.getMaxRetries());
+        pstmt.setLong(6, job.getCreatedAt());
+        pstmt.setLong(7, job.getUpdatedAt());
+        pstmt.setLong(8, job.getNextExecutionTime());
+        pstmt.setInt(9, job.getPriority());
+        pstmt.setInt(10, job.getTimeout());
+        pstmt.setString(11, job.getOutput());
+        pstmt.setString(12, job.getQueue() != null ? job.getQueue() : Job.DEFAULT_QUEUE);
+        pstmt.setInt(13, job.getPriority());
+        pstmt.setLong(14, job.getCreatedAt());
+        pstmt.setInt(15, job.getPendingParents());
+        pstmt.setString(16, job.getDedupeKey());
+        pstmt.setLong(17, job.getDedupeExpiresAt());
+        pstmt.setString(18, job.getGroup());
+    }
+
+    /**
+     * Ids of the jobs {@code childId} depends on.
+     */
+    public List<String> listParents(String childId) {
+        List<String> parents = new ArrayList<>();
+        String sql = "SELECT parent_id FROM job_dependencies WHERE child_id = ? ORDER BY parent_id";
+        try (Connection conn = getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, childId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    parents.add(rs.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Find Error: " + e.getMessage());
+        }
+        return parents;
+    }
+
     public Job findJobById(String id) {
         String sql = "SELECT * FROM jobs WHERE id = ?";
-        try (Connection conn = getConnection();
+        try (Connection conn = getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, id);
             ResultSet rs = pstmt.executeQuery();
@@ -101,19 +399,141 @@ public class JobStore {
         return null;
     }
 
-    public boolean updateJob(Job job) {
-        String sql = "UPDATE jobs SET state = ?, attempts = ?, updated_at = ?, next_execution_time = ?, output = ? " +
-                "WHERE id = ?";
+    private static final String FINISH_JOB = "UPDATE jobs SET state = ?, updated_at = ?, next_execution_time = ?, output = ? " +
+            "WHERE id = ? AND state = 'PROCESSING' AND worker_id IS ? AND attempts = ?";
+
+    /**
+     * Releases the BLOCKED children of a completed parent in one UPDATE over the parent's
+     * {@code job_dependencies} range. A child whose last parent this was becomes PENDING, or
+     * SCHEDULED if its run time is still ahead, and counts as ready (for aging and queue-wait
+     * metrics) from now. Parameters: now, now, now, now, parent id. Returns the run time of each
+     * released child.
+     */
+    private static final String RELEASE_CHILDREN = "UPDATE jobs SET pending_parents = pending_parents - 1, " +
+            "state = CASE WHEN pending_parents > 1 THEN 'BLOCKED' " +
+            "WHEN next_execution_time > ? THEN 'SCHEDULED' ELSE 'PENDING' END, " +
+            "next_execution_time = MAX(next_execution_time, ?), aged_at = ?, updated_at = ? " +
+            "WHERE id IN (SELECT child_id FROM job_dependencies WHERE parent_id = ?) AND state = 'BLOCKED' " +
+            "RETURNING state, next_execution_time";
+
+    /**
+     * Records the outcome of a run, but only while {@code workerId} still holds the job's lease:
+     * the job must be PROCESSING, owned by {@code workerId} and on the same attempt. Returns false
+     * if the lease was lost, in which case the job has been reaped and may be running elsewhere.
+     * A COMPLETED outcome releases the job's children in the same transaction.
+     */
+    public boolean finishJob(Job job, String workerId) {
+        long released = Long.MAX_VALUE;
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(FINISH_JOB)) {
+            conn.setAutoCommit(false);
+            bindFinish(pstmt, job, workerId);
+            boolean recorded = pstmt.executeUpdate() == 1;
+            if (recorded && job.getState() == JobState.COMPLETED) {
+                released = releaseChildren(conn, List.of(job));
+            }
+            conn.commit();
+            notifyReleased(released);
+            return recorded;
+        } catch (SQLException e) {
+            System.err.println("Update Error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * {@link #finishJob} for many runs in one transaction, each fenced on the worker id it was
+     * claimed with ({@link Job#getWorkerId()}). The returned flags say which outcomes were recorded.
+     */
+    public boolean[] finishJobs(List<Job> jobs) throws SQLException {
+        boolean[] recorded = new boolean[jobs.size()];
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(FINISH_JOB)) {
+                for (Job job : jobs) {
+                    bindFinish(pstmt, job, job.getWorkerId());
+                    pstmt.addBatch();
+                }
+                int[] counts = pstmt.executeBatch();
+                List<Job> completed = new ArrayList<>();
+                for (int i = 0; i < counts.length; i++) {
+                    recorded[i] = counts[i] == 1;
+                    if (recorded[i] && jobs.get(i).getState() == JobState.COMPLETED) {
+                        completed.add(jobs.get(i));
+                    }
+                }
+                long released = releaseChildren(conn, completed);
+                conn.commit();
+                notifyReleased(released);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * Runs {@link #RELEASE_CHILDREN} for each completed parent. Returns the earliest run time of
+     * the children that left BLOCKED, or {@link Long#MAX_VALUE} if none did.
+     */
+    private static long releaseChildren(Connection conn, List<Job> parents) throws SQLException {
+        long earliest = Long.MAX_VALUE;
+        if (parents.isEmpty()) {
+            return earliest;
+        }
+        long now = System.currentTimeMillis();
+        try (PreparedStatement pstmt = conn.prepareStatement(RELEASE_CHILDREN)) {
+            for (Job parent : parents) {
+                pstmt.setLong(1, now);
+                pstmt.setLong(2, now);
+                pstmt.setLong(3, now);
+                pstmt.setLong(4, now);
+                pstmt.setString(5, parent.getId());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (!JobState.BLOCKED.name().equals(rs.getString(1))) {
+                            earliest = Math.min(earliest, rs.getLong(2));
+                        }
+                    }
+                }
+            }
+        }
+        return earliest;
+    }
+
+    private static void notifyReleased(long earliest) {
+        if (earliest != Long.MAX_VALUE) {
+            WakeupService.notifyWorkers(earliest);
+        }
+    }
+
+    private static void bindFinish(PreparedStatement pstmt, Job job, String workerId) throws SQLException {
+        pstmt.setString(1, job.getState().name());
+        pstmt.setLong(2, job.getUpdatedAt());
+        pstmt.setLong(3, job.getNextExecutionTime());
+        pstmt.setString(4, job.getOutput());
+        pstmt.setString(5, job.getId());
+        pstmt.setString(6, workerId);
+        pstmt.setInt(7, job.getAttempts());
+    }
+
+    /**
+     * Moves a DEAD job back to PENDING with a fresh attempt count, as a new arrival: its aging
+     * restarts from its own priority and no worker or lease is left on it. Returns false if the
+     * job is not DEAD (any more) or was deleted.
+     */
+    public boolean requeueDeadJob(String id, long now) {
+        String sql = "UPDATE jobs SET state = 'PENDING', attempts = 0, updated_at = ?, next_execution_time = ?, " +
+                "worker_id = NULL, lease_expires_at = 0, effective_priority = priority, aged_at = ? " +
+                "WHERE id = ? AND state = 'DEAD'";
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, job.getState().name());
-            pstmt.setInt(2, job.getAttempts());
-            pstmt.setLong(3, job.getUpdatedAt());
-            pstmt.setLong(4, job.getNextExecutionTime());
-            pstmt.setString(5, job.getOutput());
-            pstmt.setString(6, job.getId());
-            pstmt.executeUpdate();
-            return true;
+            pstmt.setLong(1, now);
+            pstmt.setLong(2, now);
+            pstmt.setLong(3, now);
+            pstmt.setString(4, id);
+            return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
             System.err.println("Update Error: " + e.getMessage());
             return false;
@@ -122,85 +542,708 @@ public class JobStore {
 
     public List<Job> listJobsByState(JobState state) {
         List<Job> jobs = new ArrayList<>();
-        String sql = "SELECT * FROM jobs WHERE state = ? ORDER BY created_at ASC";
-        try (Connection conn = getConnection();
+        forEachJobByState(state, null, 0, FULL_OUTPUT, jobs::add);
+        return jobs;
+    }
+
+    /**
+     * Streams jobs in one state, oldest first, to {@code consumer} without holding them in memory.
+     * Pagination is by keyset: pass the cursor returned by the previous page as {@code after}
+     * (null for the first page). {@code limit} of 0 means no limit. {@code outputChars} selects
+     * how much of the output column is read: 0 for none, {@link #FULL_OUTPUT} for all of it,
+     * otherwise that many leading characters.
+     *
+     * @return cursor of the last job if the page was full, otherwise null
+     */
+    public String forEachJobByState(JobState state, String after, int limit, int outputChars, Consumer<Job> consumer) {
+        return forEachJobByState(state, null, after, limit, outputChars, consumer);
+    }
+
+    /**
+     * Like {@link #forEachJobByState(JobState, String, int, int, Consumer)}, restricted to one
+     * queue unless {@code queue} is null.
+     */
+    public String forEachJobByState(JobState state, String queue, String after, int limit, int outputChars,
+                                    Consumer<Job> consumer) {
+        return forEachJobByState(state, queue, after, limit, outputChars, false, consumer);
+    }
+
+    /**
+     * Like {@link #forEachJobByState(JobState, String, String, int, int, Consumer)}, newest first
+     * if {@code newestFirst} is set. Cursors only continue a listing in the order they came from.
+     */
+    public String forEachJobByState(JobState state, String queue, String after, int limit, int outputChars,
+                                    boolean newestFirst, Consumer<Job> consumer) {
+        // Values are bound rather than spliced in, so every page size shares one cached statement.
+        String output = outputChars == 0 ? "NULL" : outputChars < 0 ? "output" : "substr(output, 1, ?)";
+        long afterCreated = newestFirst ? Long.MAX_VALUE : Long.MIN_VALUE;
+        String afterId = "";
+        if (after != null) {
+            afterCreated = cursorCreatedAt(after);
+            afterId = after.substring(after.indexOf(':') + 1);
+        }
+        String sql = "SELECT " + LIST_COLUMNS + ", " + output + " AS output " +
+                "FROM jobs INDEXED BY idx_jobs_state_created_id " +
+                "WHERE state = ? AND (created_at, id) " + (newestFirst ? "<" : ">") + " (?, ?) " +
+                (queue != null ? "AND queue = ? " : "") +
+                (newestFirst ? "ORDER BY created_at DESC, id DESC" : "ORDER BY created_at, id") + " LIMIT ?";
+
+        int seen = 0;
+        Job last = null;
+        try (Connection conn = getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (outputChars > 0) {
+                pstmt.setInt(i++, outputChars);
+            }
+            pstmt.setString(i++, state.name());
+            pstmt.setLong(i++, afterCreated);
+            pstmt.setString(i++, afterId);
+            if (queue != null) {
+                pstmt.setString(i++, queue);
+            }
+            // A negative LIMIT means no limit in SQLite.
+            pstmt.setInt(i, limit > 0 ? limit : -1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    last = mapRowToJob(rs);
+                    consumer.accept(last);
+                    seen++;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("List Error: " + e.getMessage());
+            return null;
+        }
+        return limit > 0 && seen == limit ? cursorOf(last) : null;
+    }
+
+    public static String cursorOf(Job job) {
+        return job.getCreatedAt() + ":" + job.getId();
+    }
+
+    /**
+     * Throws {@link IllegalArgumentException} unless {@code cursor} came from {@link #cursorOf}.
+     */
+    public static void validateCursor(String cursor) {
+        cursorCreatedAt(cursor);
+    }
+
+    private static long cursorCreatedAt(String cursor) {
+        int split = cursor.indexOf(':');
+        try {
+            if (split > 0) {
+                return Long.parseLong(cursor.substring(0, split));
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    /**
+     * Streams the due time of every FAILED or SCHEDULED job and returns how many there were.
+     */
+    public int forEachDelayedDeadline(LongConsumer consumer) {
+        String sql = "SELECT next_execution_time FROM jobs INDEXED BY idx_jobs_queue_due " +
+                "WHERE state IN ('FAILED', 'SCHEDULED')";
+        int count = 0;
+        try (Connection conn = getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, state.name());
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                jobs.add(mapRowToJob(rs));
+                consumer.accept(rs.getLong(1));
+                count++;
             }
         } catch (SQLException e) {
-            System.err.println("List Error: " + e.getMessage());
+            System.err.println("Schedule Error: " + e.getMessage());
         }
-        return jobs;
+        return count;
     }
 
+    /**
+     * The ready set over all queues as {@code {jobs, earliest time one of them became ready}},
+     * or {@code {0, 0}} when nothing is ready. A PENDING job became ready at {@code aged_at}
+     * (enqueue, release by its last parent, or its last priority raise), a due FAILED or
+     * SCHEDULED job at {@code next_execution_time}. The PENDING count comes from
+     * {@code job_counts}; everything else is read from the two halves' indexes.
+     */
+    public long[] readyBacklog(long now) {
+        String pending = "SELECT (SELECT COALESCE(SUM(count), 0) FROM job_counts WHERE state = 'PENDING'), " +
+                "(SELECT MIN(aged_at) FROM jobs INDEXED BY idx_jobs_aging WHERE state = 'PENDING')";
+        String due = "SELECT COUNT(*), MIN(j.next_execution_time) " +
+                "FROM (SELECT DISTINCT queue FROM job_counts WHERE state IN ('FAILED', 'SCHEDULED') AND count > 0) q " +
+                "JOIN jobs j INDEXED BY idx_jobs_queue_due ON j.queue = q.queue " +
+                "WHERE j.state IN ('FAILED', 'SCHEDULED') AND j.next_execution_time <= ?";
+        long count = 0;
+        long since = 0;
+        try (Connection conn = getReadConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(pending);
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getLong(1) > 0) {
+                    count = rs.getLong(1);
+                    since = rs.getLong(2);
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(due)) {
+                pstmt.setLong(1, now);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next() && rs.getLong(1) > 0) {
+                        since = count > 0 ? Math.min(since, rs.getLong(2)) : rs.getLong(2);
+                        count += rs.getLong(1);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Status Error: " + e.getMessage());
+            return new long[] {0, 0};
+        }
+        return new long[] {count, since};
+    }
+
+    /**
+     * Jobs per state over all queues, read from the trigger-maintained {@code job_counts} table.
+     * States with no jobs are left out.
+     */
     public Map<JobState, Integer> getStatusSummary() {
-        Map<JobState, Integer> summary = new HashMap<>();
-        String sql = "SELECT state, COUNT(*) as count FROM jobs GROUP BY state";
-        try (Connection conn = getConnection();
+        String sql = "SELECT state, SUM(count) AS count FROM job_counts GROUP BY state HAVING SUM(count) > 0";
+        try (Connection conn = getReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return readCounts(rs);
+        } catch (SQLException e) {
+            System.err.println("Status Error: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Jobs per state in one queue. States with no jobs are left out.
+     */
+    public Map<JobState, Integer> getStatusSummary(String queue) {
+        String sql = "SELECT state, count FROM job_counts WHERE queue = ? AND count > 0";
+        try (Connection conn = getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, queue);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readCounts(rs);
+            }
+        } catch (SQLException e) {
+            System.err.println("Status Error: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Names of the queues that hold any jobs, sorted.
+     */
+    public List<String> listQueues() {
+        return queueNames("SELECT DISTINCT queue FROM job_counts WHERE count > 0 ORDER BY queue");
+    }
+
+    /**
+     * Names of the queues with PENDING, FAILED or SCHEDULED jobs, sorted. Delayed jobs may not be
+     * due yet, so a claim from one of these can still come back empty.
+     */
+    public List<String> listWaitingQueues() {
+        return queueNames("SELECT DISTINCT queue FROM job_counts " +
+                "WHERE state IN ('PENDING', 'FAILED', 'SCHEDULED') AND count > 0 ORDER BY queue");
+    }
+
+    private List<String> queueNames(String sql) {
+        List<String> queues = new ArrayList<>();
+        try (Connection conn = getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                JobState state = JobState.valueOf(rs.getString("state"));
-                int count = rs.getInt("count");
-                summary.put(state, count);
+                queues.add(rs.getString(1));
             }
         } catch (SQLException e) {
             System.err.println("Status Error: " + e.getMessage());
         }
-        return summary;
+        return queues;
+    }
+
+    /**
+     * Recomputes {@code job_counts} from the jobs table and returns the counts before and after,
+     * in that order. Only needed if the table was edited with the triggers bypassed.
+     */
+    public List<Map<JobState, Integer>> repairStatusCounts() throws SQLException {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                Map<JobState, Integer> before;
+                try (ResultSet rs = stmt.executeQuery(COUNTS_BY_STATE)) {
+                    before = readCounts(rs);
+                }
+                rebuildJobCounts(stmt);
+                Map<JobState, Integer> after;
+                try (ResultSet rs = stmt.executeQuery(COUNTS_BY_STATE)) {
+                    after = readCounts(rs);
+                }
+                conn.commit();
+                return List.of(before, after);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static final String COUNTS_BY_STATE = "SELECT state, SUM(count) AS count FROM job_counts GROUP BY state";
+
+    static void rebuildJobCounts(Statement stmt) throws SQLException {
+        stmt.execute("DELETE FROM job_counts");
+        stmt.execute("INSERT INTO job_counts (queue, state, count) " +
+                "SELECT queue, state, COUNT(*) FROM jobs GROUP BY queue, state");
+    }
+
+    private static Map<JobState, Integer> readCounts(ResultSet rs) throws SQLException {
+        Map<JobState, Integer> counts = new HashMap<>();
+        while (rs.next()) {
+            counts.put(JobState.valueOf(rs.getString("state")), rs.getInt("count"));
+        }
+        return counts;
     }
 
+    /**
+     * Exclusive {@code updated_at} bound below which finished jobs in {@code state} fall outside
+     * retention: older than {@code maxAgeMillis}, but never among the newest {@code keep} jobs.
+     * With only a count set, everything beyond the newest {@code keep} is due. A zero age or
+     * count disables that rule; returns {@link Long#MIN_VALUE} if nothing is due.
+     */
+    public long retentionCutoff(JobState state, long maxAgeMillis, int keep) {
+        long cutoff = Long.MAX_VALUE;
+        if (maxAgeMillis > 0) {
+            cutoff = System.currentTimeMillis() - maxAgeMillis;
+        } else if (keep <= 0) {
+            return Long.MIN_VALUE;
+        }
+        if (keep > 0) {
+            String sql = "SELECT updated_at FROM jobs INDEXED BY idx_jobs_finished " +
+                    "WHERE state IN ('COMPLETED', 'DEAD') AND state = ? " +
+                    "ORDER BY updated_at DESC LIMIT 1 OFFSET ?";
+            try (Connection conn = getReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, state.name());
+                pstmt.setInt(2, keep - 1);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        // Fewer than keep jobs: all of them are protected.
+                        return Long.MIN_VALUE;
+                    }
+                    cutoff = Math.min(cutoff, rs.getLong(1));
+                }
+            } catch (SQLException e) {
+                System.err.println("Retention Error: " + e.getMessage());
+                return Long.MIN_VALUE;
+            }
+        }
+        return cutoff;
+    }
+
+    /**
+     * Keeps a DEAD parent while any child still waits BLOCKED on it: deleting it would drop the
+     * edge and leave the child waiting forever, while a kept parent can still be retried.
+     */
+    private static final String NO_BLOCKED_CHILDREN = "NOT EXISTS (SELECT 1 FROM job_dependencies d " +
+            "JOIN jobs c ON c.id = d.child_id WHERE d.parent_id = jobs.id AND c.state = 'BLOCKED')";
 
-    public synchronized Job findAndLockNextJob() {
-        String selectSql = "SELECT * FROM jobs " +
-                "WHERE (state = 'PENDING' OR (state = 'FAILED' AND next_execution_time <= ?)) " +
-                "ORDER BY priority DESC, created_at ASC LIMIT 1";
-        
-        String updateSql = "UPDATE jobs SET state = 'PROCESSING', updated_at = ?, attempts = ? " +
-                "WHERE id = ? AND (state = 'PENDING' OR state = 'FAILED')";
+    /**
+     * Oldest finished jobs in {@code state} last updated before {@code cutoff}, at most
+     * {@code limit}, starting after {@code after} (null for the oldest). Parents with BLOCKED
+     * children are left out.
+     */
+    public List<Job> findFinishedBefore(JobState state, long cutoff, Job after, int limit) {
+        List<Job> jobs = new ArrayList<>();
+        String sql = "SELECT * FROM jobs INDEXED BY idx_jobs_finished " +
+                "WHERE state IN ('COMPLETED', 'DEAD') AND state = ? AND updated_at < ? AND (updated_at, id) > (?, ?) " +
+                "AND " + NO_BLOCKED_CHILDREN + " ORDER BY updated_at, id LIMIT ?";
+        try (Connection conn = getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, state.name());
+            pstmt.setLong(2, cutoff);
+            pstmt.setLong(3, after == null ? Long.MIN_VALUE : after.getUpdatedAt());
+            pstmt.setString(4, after == null ? "" : after.getId());
+            pstmt.setInt(5, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    jobs.add(mapRowToJob(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Retention Error: " + e.getMessage());
+        }
+        return jobs;
+    }
 
+    /**
+     * Deletes the given jobs in one short transaction, skipping any that left their finished
+     * state since they were read (e.g. retried from the DLQ) or gained a BLOCKED child. Returns
+     * the ids actually deleted.
+     */
+    public List<String> deleteFinishedJobs(List<Job> jobs) {
+        List<String> deleted = new ArrayList<>();
+        String sql = "DELETE FROM jobs WHERE id = ? AND state = ? AND updated_at = ? AND " + NO_BLOCKED_CHILDREN;
         try (Connection conn = getConnection()) {
             conn.setAutoCommit(false);
-            Job job = null;
-
-            try (PreparedStatement selectStmt = conn.prepareStatement(selectSql)) {
-                selectStmt.setLong(1, System.currentTimeMillis());
-                ResultSet rs = selectStmt.executeQuery();
-                if (rs.next()) {
-                    job = mapRowToJob(rs);
-                }
-            }
-
-            if (job != null) {
-                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                    long now = System.currentTimeMillis();
-                    int newAttempts = job.getAttempts() + 1;
-                    
-                    updateStmt.setLong(1, now);
-                    updateStmt.setInt(2, newAttempts);
-                    updateStmt.setString(3, job.getId());
-
-                    int rowsAffected = updateStmt.executeUpdate();
-                    if (rowsAffected > 0) {
-                        conn.commit();
-                        job.setState(JobState.PROCESSING);
-                        job.setUpdatedAt(now);
-                        job.setAttempts(newAttempts);
-                        return job;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Job job : jobs) {
+                    pstmt.setString(1, job.getId());
+                    pstmt.setString(2, job.getState().name());
+                    pstmt.setLong(3, job.getUpdatedAt());
+                    pstmt.addBatch();
+                }
+                int[] counts = pstmt.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        deleted.add(jobs.get(i).getId());
+                    }
+                }
+            }
+            conn.commit();
+            // Deleting a job frees its dedupe key.
+            for (int i = 0; i < jobs.size(); i++) {
+                Job job = jobs.get(i);
+                if (job.getDedupeKey() != null && deleted.contains(job.getId())) {
+                    dedupeCache.remove(job.getDedupeKey(), job.getId());
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Retention Error: " + e.getMessage());
+            return new ArrayList<>();
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns up to {@code maxPages} free pages to the filesystem if the database uses incremental
+     * auto-vacuum, and reports {@code {auto_vacuum mode, free pages left, page size}}.
+     */
+    public long[] incrementalVacuum(int maxPages) throws SQLException {
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            long mode = pragmaLong(stmt, "auto_vacuum");
+            long free = pragmaLong(stmt, "freelist_count");
+            long pageSize = pragmaLong(stmt, "page_size");
+            if (mode == 2 && free > 0 && maxPages > 0) {
+                // The pragma frees one page per step, and the driver steps a statement that
+                // returns no columns only once; so free one page per execution, all in one
+                // transaction. Each execute finishes the previous one, and the count read
+                // finishes the last before the commit.
+                long pages = Math.min(free, maxPages);
+                conn.setAutoCommit(false);
+                for (long i = 0; i < pages; i++) {
+                    stmt.execute("PRAGMA incremental_vacuum(1)");
+                }
+                free = pragmaLong(stmt, "freelist_count");
+                conn.commit();
+            }
+            return new long[] {mode, free, pageSize};
+        }
+    }
+
+    /**
+     * Switches the database to incremental auto-vacuum. Rewrites the whole file with VACUUM,
+     * which blocks every other writer while it runs.
+     */
+    public void enableIncrementalVacuum() throws SQLException {
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            stmt.execute("VACUUM");
+            // VACUUM in WAL mode leaves a copy of the whole database in the log.
+            stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+        }
+    }
+
+    private static long pragmaLong(Statement stmt, String pragma) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Raises the effective priority of up to {@code limit} PENDING jobs that have waited since
+     * {@code cutoff} or longer without a raise, oldest first, and stamps them with {@code now}.
+     * Boosts stop at {@code maxBoost} above the job's own priority (0 for no limit); capped jobs
+     * are still stamped so they stop coming back. Returns how many jobs were stamped.
+     */
+    public int promoteWaitingJobs(long cutoff, long now, int maxBoost, int limit) throws SQLException {
+        String sql = "UPDATE jobs SET aged_at = ?, effective_priority = CASE WHEN ? > 0 " +
+                "THEN MIN(effective_priority + 1, MAX(effective_priority, priority + ?)) " +
+                "ELSE effective_priority + 1 END " +
+                "WHERE id IN (SELECT id FROM jobs INDEXED BY idx_jobs_aging " +
+                "WHERE state = 'PENDING' AND aged_at <= ? ORDER BY aged_at LIMIT ?)";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, now);
+            pstmt.setInt(2, maxBoost);
+            pstmt.setInt(3, maxBoost);
+            pstmt.setLong(4, cutoff);
+            pstmt.setInt(5, limit);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    public Job findAndLockNextJob() {
+        List<Job> jobs = claimBatch(null, 1);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * Leases up to {@code limit} ready jobs from the default queue to {@code workerId}.
+     */
+    public List<Job> claimBatch(String workerId, int limit) {
+        return claimBatch(workerId, Job.DEFAULT_QUEUE, limit, DEFAULT_LEASE_MILLIS);
+    }
+
+    /**
+     * Leases up to {@code limit} ready jobs in {@code queue} to {@code workerId}. Selection and the PROCESSING
+     * transition happen in one UPDATE ... RETURNING statement inside a BEGIN IMMEDIATE
+     * transaction, so a job is handed to exactly one caller across threads and across
+     * processes sharing the database. Jobs come back in claim order. The lease runs out
+     * {@code leaseMillis} from now unless renewed with {@link #renewLeases}.
+     */
+    public List<Job> claimBatch(String workerId, String queue, int limit, long leaseMillis) {
+        String sql = "UPDATE jobs SET state = 'PROCESSING', worker_id = ?, updated_at = ?, attempts = attempts + 1, " +
+                "lease_expires_at = ? " +
+                "WHERE id IN (" + READY_JOB_IDS + ") " +
+                "RETURNING *";
+
+        List<Job> jobs = new ArrayList<>();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                long now = System.currentTimeMillis();
+                pstmt.setString(1, workerId);
+                pstmt.setLong(2, now);
+                pstmt.setLong(3, now + leaseMillis);
+                pstmt.setString(4, queue);
+                pstmt.setInt(5, limit);
+                pstmt.setString(6, queue);
+                pstmt.setLong(7, now);
+                pstmt.setInt(8, limit);
+                pstmt.setInt(9, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        jobs.add(mapRowToJob(rs));
+                    }
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            System.err.println("Locking Error: " + e.getMessage());
+            return Collections.emptyList();
+        }
+        // RETURNING does not preserve the ORDER BY of the subquery.
+        jobs.sort(CLAIM_ORDER);
+        return jobs;
+    }
+
+    /**
+     * Like {@link #claimBatch(String, String, int, long)}, but passes over jobs whose group is at
+     * its concurrency or rate limit. Groups the limiter already knows to be full are left out of
+     * the ready-set query; the rest are checked and charged as candidates come up, all in the
+     * claim transaction. Without any group limits configured this is the plain claim.
+     */
+    public List<Job> claimBatch(String workerId, String queue, int limit, long leaseMillis, GroupLimiter groups) {
+        if (groups == null || !groups.hasLimits()) {
+            return claimBatch(workerId, queue, limit, leaseMillis);
+        }
+        List<Job> jobs = new ArrayList<>();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            long now = System.currentTimeMillis();
+            Set<String> excluded = groups.saturated(now);
+            GroupLimiter.Claim claim = groups.begin(conn, now);
+            for (int round = 0; round < MAX_GROUP_CLAIM_ROUNDS && jobs.size() < limit; round++) {
+                List<String[]> candidates = readyCandidates(conn, queue, now, limit - jobs.size(), excluded);
+                List<String> take = new ArrayList<>(candidates.size());
+                boolean skipped = false;
+                for (String[] candidate : candidates) {
+                    if (!excluded.contains(candidate[1]) && claim.tryTake(candidate[1])) {
+                        take.add(candidate[0]);
                     } else {
-                        conn.rollback();
-                        return null;
+                        excluded.add(candidate[1]);
+                        skipped = true;
                     }
                 }
+                jobs.addAll(claimIds(conn, workerId, take, now, leaseMillis));
+                if (!skipped) {
+                    break;
+                }
             }
+            claim.commit();
             conn.commit();
-            return null;
         } catch (SQLException e) {
             System.err.println("Locking Error: " + e.getMessage());
-            return null;
+            return Collections.emptyList();
+        }
+        groups.claimed(jobs);
+        jobs.sort(CLAIM_ORDER);
+        return jobs;
+    }
+
+    /**
+     * The next ready jobs of one queue, in claim order, as {@code columns} (any of id, job_group,
+     * effective_priority, created_at). Each half of the ready set (PENDING jobs, and FAILED or
+     * SCHEDULED jobs whose time has come) is read from its own partial index, starting at the
+     * queue's range, and the two are merged, instead of an OR that forces a scan of the whole
+     * table. With {@code excludedGroups} > 0 both halves skip jobs of that many groups.
+     * Parameters: queue, [groups], limit, queue, now, [groups], limit, limit.
+     */
+    private static String readySetSql(String columns, int excludedGroups) {
+        String groupFilter = "";
+        if (excludedGroups > 0) {
+            groupFilter = "AND (job_group IS NULL OR job_group NOT IN (" +
+                    String.join(",", Collections.nCopies(excludedGroups, "?")) + ")) ";
+        }
+        return "SELECT " + columns + " FROM (" +
+                "SELECT * FROM (SELECT id, job_group, effective_priority, created_at FROM jobs INDEXED BY idx_jobs_queue_ready " +
+                "WHERE state = 'PENDING' AND queue = ? " + groupFilter +
+                "ORDER BY effective_priority DESC, created_at ASC LIMIT ?) " +
+                "UNION ALL " +
+                "SELECT * FROM (SELECT id, job_group, effective_priority, created_at FROM jobs INDEXED BY idx_jobs_queue_due " +
+                "WHERE state IN ('FAILED', 'SCHEDULED') AND queue = ? AND next_execution_time <= ? " + groupFilter +
+                "ORDER BY effective_priority DESC, created_at ASC LIMIT ?) " +
+                "ORDER BY effective_priority DESC, created_at ASC LIMIT ?)";
+    }
+
+    /**
+     * The next {@code limit} ready jobs in {@code queue} as (id, group) pairs, in claim order,
+     * leaving out jobs of the {@code excluded} groups.
+     */
+    private static List<String[]> readyCandidates(Connection conn, String queue, long now, int limit,
+                                                  Set<String> excluded) throws SQLException {
+        String sql = readySetSql("id, job_group", excluded.size());
+        List<String[]> candidates = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            pstmt.setString(index++, queue);
+            for (String group : excluded) {
+                pstmt.setString(index++, group);
+            }
+            pstmt.setInt(index++, limit);
+            pstmt.setString(index++, queue);
+            pstmt.setLong(index++, now);
+            for (String group : excluded) {
+                pstmt.setString(index++, group);
+            }
+            pstmt.setInt(index++, limit);
+            pstmt.setInt(index, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    candidates.add(new String[] {rs.getString(1), rs.getString(2)});
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private List<Job> claimIds(Connection conn, String workerId, List<String> ids, long now, long leaseMillis)
+            throws SQLException {
+        List<Job> jobs = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return jobs;
+        }
+        String sql = "UPDATE jobs SET state = 'PROCESSING', worker_id = ?, updated_at = ?, attempts = attempts + 1, " +
+                "lease_expires_at = ? " +
+                "WHERE id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ") " +
+                "RETURNING *";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, workerId);
+            pstmt.setLong(2, now);
+            pstmt.setLong(3, now + leaseMillis);
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setString(i + 4, ids.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    jobs.add(mapRowToJob(rs));
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Extends the lease on every job {@code workerId} holds, in one statement. Returns how many
+     * leases were renewed.
+     */
+    public int renewLeases(String workerId, long expiresAt) throws SQLException {
+        String sql = "UPDATE jobs INDEXED BY idx_jobs_leases SET lease_expires_at = ? " +
+                "WHERE state = 'PROCESSING' AND worker_id IS ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, expiresAt);
+            pstmt.setString(2, workerId);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Takes back PROCESSING jobs whose lease ran out before {@code now}, because their worker died
+     * or stalled. The lost run already counted as an attempt when it was claimed: jobs with
+     * attempts left go back to PENDING, the others to DEAD. {@code defaultMaxRetries} applies to
+     * jobs without their own limit. Returns the reaped jobs with their new state.
+     */
+    public List<Job> reapExpiredLeases(long now, int defaultMaxRetries) throws SQLException {
+        String sql = "UPDATE jobs SET " +
+                "state = CASE WHEN attempts >= (CASE WHEN max_retries > 0 THEN max_retries ELSE ? END) " +
+                "THEN 'DEAD' ELSE 'PENDING' END, " +
+                "output = COALESCE(NULLIF(output, '') || char(10), '') || '[ERROR] Lease expired on worker ' || " +
+                "COALESCE(worker_id, '?') || '; the run was lost.', " +
+                "worker_id = NULL, updated_at = ?, next_execution_time = ? " +
+                "WHERE id IN (SELECT id FROM jobs INDEXED BY idx_jobs_leases " +
+                "WHERE state = 'PROCESSING' AND lease_expires_at < ?) " +
+                "RETURNING " + LIST_COLUMNS + ", NULL AS output";
+        List<Job> jobs = new ArrayList<>();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, defaultMaxRetries);
+                pstmt.setLong(2, now);
+                pstmt.setLong(3, now);
+                pstmt.setLong(4, now);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        jobs.add(mapRowToJob(rs));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Hands leased but unstarted jobs back to the ready set, undoing the attempt taken at claim time.
+     */
+    public void releaseJobs(String workerId, List<Job> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE jobs SET state = 'PENDING', worker_id = NULL, attempts = attempts - 1, updated_at = ? " +
+                "WHERE id = ? AND state = 'PROCESSING' AND worker_id IS ?";
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                long now = System.currentTimeMillis();
+                for (Job job : jobs) {
+                    pstmt.setLong(1, now);
+                    pstmt.setString(2, job.getId());
+                    pstmt.setString(3, workerId);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            System.err.println("Release Error: " + e.getMessage());
         }
     }
 
@@ -217,6 +1260,13 @@ public class JobStore {
         job.setPriority(rs.getInt("priority"));
         job.setTimeout(rs.getInt("timeout"));
         job.setOutput(rs.getString("output"));
+        job.setWorkerId(rs.getString("worker_id"));
+        job.setQueue(rs.getString("queue"));
+        job.setEffectivePriority(rs.getInt("effective_priority"));
+        job.setLeaseExpiresAt(rs.getLong("lease_expires_at"));
+        job.setPendingParents(rs.getInt("pending_parents"));
+        job.setDedupeKey(rs.getString("dedupe_key"));
+        job.setGroup(rs.getString("job_group"));
         return job;
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.queuectl.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import com.queuectl.model.Job;
+import com.queuectl.model.JobState;
+
+/**
+ * Keeps this process's leases alive and reclaims the leases of processes that died. Every third
+ * of {@code lease-duration} (default 30s) it renews all jobs this worker holds with one UPDATE,
+ * then returns jobs whose lease ran out to the queue. A worker killed with SIGKILL therefore
+ * loses its jobs to the others within one lease, instead of leaving them PROCESSING forever.
+ */
+public class LeaseService {
+    private static final long MIN_HEARTBEAT_MILLIS = 100;
+    private static final Duration DEFAULT_LEASE = Duration.ofMillis(JobStore.DEFAULT_LEASE_MILLIS);
+
+    private final String workerId;
+    private final JobStore jobStore = JobStore.getInstance();
+    private final ConfigService config = ConfigService.getInstance();
+    private Thread thread;
+    private volatile boolean running = true;
+
+    public LeaseService(String workerId) {
+        this.workerId = workerId;
+    }
+
+    /**
+     * How long a claim holds a job without a heartbeat.
+     */
+    public static long leaseMillis() {
+        Duration lease = ConfigService.getInstance().getConfigAsDuration("lease-duration", DEFAULT_LEASE);
+        return Math.max(lease.toMillis(), 3 * MIN_HEARTBEAT_MILLIS);
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "queuectl-leases");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Renews this worker's leases, then reaps expired ones. Returns the reaped jobs.
+     */
+    public List<Job> heartbeat(long now) throws Exception {
+        jobStore.renewLeases(workerId, now + leaseMillis());
+        List<Job> reaped = jobStore.reapExpiredLeases(now, config.getConfigAsInt("max-retries", 3));
+        if (!reaped.isEmpty()) {
+            long dead = reaped.stream().filter(job -> job.getState() == JobState.DEAD).count();
+            System.out.printf("[Leases] Reclaimed %d job(s) from lost workers (%d moved to DLQ).%n",
+                    reaped.size(), dead);
+            if (dead < reaped.size()) {
+                WakeupService.notifyWorkers();
+            }
+        }
+        return reaped;
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                heartbeat(System.currentTimeMillis());
+            } catch (Exception e) {
+                // A missed beat is fine as long as the next one lands within the lease.
+                System.err.println("[Leases] Error: " + e.getMessage());
+            }
+            try {
+                Thread.sleep(leaseMillis() / 3);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
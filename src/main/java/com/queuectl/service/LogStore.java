@@ -0,0 +1,517 @@
+package com.queuectl.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only store for job output. Output is cut into blocks of up to {@value #BLOCK_SIZE}
+ * bytes, each optionally deflated and appended as a framed record to the writing process's
+ * current segment file under {@code ~/.queuectl/logs/segments}. Segments roll at
+ * {@code log-segment-size} bytes. The {@code job_log_chunks} table maps (job, run, block)
+ * to a segment offset, so one job's output is read back without scanning, and its rows go
+ * away with the job through a trigger.
+ *
+ * Frame layout: magic, codec, run, block number, job id, raw length, stored length,
+ * payload, CRC32 of the payload. The header only matters for recovery; readers go straight to
+ * the payload through the index.
+ */
+public class LogStore {
+    public static final Path LOG_DIR = Paths.get(System.getProperty("user.home"), ".queuectl", "logs");
+    private static final Path SEGMENT_DIR = LOG_DIR.resolve("segments");
+    private static final int MAGIC = 0x514C4F47; // "QLOG"
+    private static final byte CODEC_NONE = 0;
+    private static final byte CODEC_DEFLATE = 1;
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    // Partially filled blocks are written out this often, so `logs --follow` sees slow output.
+    private static final long FLUSH_INTERVAL_MILLIS = 1_000;
+    // Another process may still be indexing blocks it wrote into a segment it has since rolled.
+    private static final long FOREIGN_SEGMENT_GRACE_MILLIS = 60_000;
+    private static LogStore instance;
+
+    private final JobStore jobStore = JobStore.getInstance();
+    private final Set<AttemptLog> open = ConcurrentHashMap.newKeySet();
+    private final Map<String, MappedByteBuffer> mapped = new ConcurrentHashMap<>();
+    // Segments holding blocks of this process that are written but not yet indexed.
+    private final Map<String, Integer> unindexed = new ConcurrentHashMap<>();
+    private final ReentrantLock segmentLock = new ReentrantLock();
+    private FileChannel segment;
+    private String segmentName;
+    private int segmentSeq;
+    private Thread flusher;
+
+    private LogStore() {}
+
+    public static synchronized LogStore getInstance() {
+        if (instance == null) {
+            instance = new LogStore();
+        }
+        return instance;
+    }
+
+    /** Index entry for one stored block. */
+    public static final class Chunk {
+        public final int run;
+        public final int block;
+        final String segment;
+        final long offset;
+        final int length;
+        public final int rawLength;
+        final byte codec;
+
+        Chunk(int run, int block, String segment, long offset, int length, int rawLength, byte codec) {
+            this.run = run;
+            this.block = block;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.rawLength = rawLength;
+            this.codec = codec;
+        }
+    }
+
+    /**
+     * Output sink for one run of a job. Safe to share between the stdout and stderr readers.
+     */
+    public final class AttemptLog implements AutoCloseable {
+        private final String jobId;
+        private final int run;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final ReentrantLock lock = new ReentrantLock();
+        private int filled;
+        private int blockNumber;
+        private long lastFlush = System.currentTimeMillis();
+        private boolean closed;
+
+        private AttemptLog(String jobId, int run) {
+            this.jobId = jobId;
+            this.run = run;
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            lock.lock();
+            try {
+                while (length > 0) {
+                    int n = Math.min(length, BLOCK_SIZE - filled);
+                    System.arraycopy(bytes, offset, block, filled, n);
+                    filled += n;
+                    offset += n;
+                    length -= n;
+                    if (filled == BLOCK_SIZE) {
+                        flush();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void write(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            write(bytes, 0, bytes.length);
+        }
+
+        void flushIfStale(long now) throws IOException {
+            lock.lock();
+            try {
+                if (filled > 0 && now - lastFlush >= FLUSH_INTERVAL_MILLIS) {
+                    flush();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flush() throws IOException {
+            lastFlush = System.currentTimeMillis();
+            if (filled == 0 || closed) {
+                return;
+            }
+            appendBlock(jobId, run, blockNumber++, block, filled);
+            filled = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            lock.lock();
+            try {
+                flush();
+            } finally {
+                closed = true;
+                open.remove(this);
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Starts the log of a new run of {@code jobId}. Runs are numbered per job rather than taken
+     * from the attempt counter, which starts over when a dead job is retried.
+     */
+    public AttemptLog open(String jobId) throws IOException {
+        AttemptLog log = new AttemptLog(jobId, lastRun(jobId) + 1);
+        open.add(log);
+        startFlusher();
+        return log;
+    }
+
+    private int lastRun(String jobId) throws IOException {
+        try (Connection conn = jobStore.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT COALESCE(MAX(run), 0) FROM job_log_chunks WHERE job_id = ?")) {
+            pstmt.setString(1, jobId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not read log index: " + e.getMessage(), e);
+        }
+    }
+
+    private synchronized void startFlusher() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(FLUSH_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                for (AttemptLog log : open) {
+                    try {
+                        log.flushIfStale(now);
+                    } catch (IOException e) {
+                        System.err.println("Log flush error: " + e.getMessage());
+                    }
+                }
+            }
+        }, "queuectl-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void appendBlock(String jobId, int run, int blockNumber, byte[] raw, int rawLength) throws IOException {
+        byte codec = CODEC_NONE;
+        byte[] payload = raw;
+        int length = rawLength;
+        if (!"none".equalsIgnoreCase(ConfigService.getInstance().getConfig("log-compression"))) {
+            byte[] deflated = new byte[rawLength + 64];
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+            try {
+                deflater.setInput(raw, 0, rawLength);
+                deflater.finish();
+                int n = deflater.deflate(deflated);
+                if (deflater.finished() && n < rawLength) {
+                    codec = CODEC_DEFLATE;
+                    payload = deflated;
+                    length = n;
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, length);
+        byte[] id = jobId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(4 + 1 + 4 + 4 + 2 + id.length + 4 + 4 + length + 4);
+        frame.putInt(MAGIC).put(codec).putInt(run).putInt(blockNumber)
+                .putShort((short) id.length).put(id).putInt(rawLength).putInt(length);
+        int headerLength = frame.position();
+        frame.put(payload, 0, length).putInt((int) crc.getValue()).flip();
+
+        String name;
+        long payloadOffset;
+        segmentLock.lock();
+        try {
+            FileChannel channel = activeSegment(frame.remaining());
+            name = segmentName;
+            payloadOffset = channel.size() + headerLength;
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            unindexed.merge(name, 1, Integer::sum);
+        } finally {
+            segmentLock.unlock();
+        }
+        try {
+            index(new Chunk(run, blockNumber, name, payloadOffset, length, rawLength, codec), jobId);
+        } finally {
+            unindexed.computeIfPresent(name, (k, n) -> n == 1 ? null : n - 1);
+        }
+    }
+
+    private FileChannel activeSegment(int frameLength) throws IOException {
+        // Blocks are read through one mapped view of the segment, which cannot pass 2 GiB.
+        long limit = Math.min(Integer.MAX_VALUE,
+                ConfigService.getInstance().getConfigAsLong("log-segment-size", DEFAULT_SEGMENT_SIZE));
+        if (segment != null && segment.size() + frameLength <= limit) {
+            return segment;
+        }
+        if (segment != null) {
+            segment.close();
+        }
+        Files.createDirectories(SEGMENT_DIR);
+        long pid = ProcessHandle.current().pid();
+        while (true) {
+            // pid keeps concurrent worker processes out of each other's segments.
+            String name = String.format("%d-%06d.seg", pid, ++segmentSeq);
+            Path path = SEGMENT_DIR.resolve(name);
+            if (!Files.exists(path)) {
+                segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                segmentName = name;
+                return segment;
+            }
+        }
+    }
+
+    private void index(Chunk chunk, String jobId) throws IOException {
+        String sql = "INSERT OR REPLACE INTO job_log_chunks " +
+                "(job_id, run, block, segment, segment_offset, length, raw_length, codec) VALUES (?,?,?,?,?,?,?,?)";
+        try (Connection conn = jobStore.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, jobId);
+            pstmt.setInt(2, chunk.run);
+            pstmt.setInt(3, chunk.block);
+            pstmt.setString(4, chunk.segment);
+            pstmt.setLong(5, chunk.offset);
+            pstmt.setInt(6, chunk.length);
+            pstmt.setInt(7, chunk.rawLength);
+            pstmt.setInt(8, chunk.codec);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new IOException("Could not index log block: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Index entries for {@code jobId} that come after (run, block), in write order. Pass
+     * (0, -1) for everything.
+     */
+    public List<Chunk> chunks(String jobId, int afterRun, int afterBlock) {
+        List<Chunk> chunks = new ArrayList<>();
+        String sql = "SELECT run, block, segment, segment_offset, length, raw_length, codec FROM job_log_chunks " +
+                "WHERE job_id = ? AND (run, block) > (?, ?) ORDER BY run, block";
+        try (Connection conn = jobStore.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, jobId);
+            pstmt.setInt(2, afterRun);
+            pstmt.setInt(3, afterBlock);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    chunks.add(new Chunk(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getLong(4),
+                            rs.getInt(5), rs.getInt(6), (byte) rs.getInt(7)));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Log Error: " + e.getMessage());
+        }
+        return chunks;
+    }
+
+    /**
+     * Decoded bytes of one block, read through a memory-mapped view of its segment.
+     */
+    public byte[] read(Chunk chunk) throws IOException {
+        ByteBuffer view = mappedSegment(chunk.segment, chunk.offset + chunk.length + 4).duplicate();
+        view.position((int) chunk.offset);
+        byte[] payload = new byte[chunk.length];
+        view.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if (view.getInt() != (int) crc.getValue()) {
+            throw new IOException("Corrupt log block in " + chunk.segment + " at " + chunk.offset);
+        }
+        if (chunk.codec == CODEC_NONE) {
+            return payload;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(payload);
+            byte[] raw = new byte[chunk.rawLength];
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, raw.length - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt log block in " + chunk.segment + ": " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private MappedByteBuffer mappedSegment(String name, long needed) throws IOException {
+        MappedByteBuffer view = mapped.get(name);
+        if (view == null || view.capacity() < needed) {
+            // The active segment keeps growing; remap once a block lies past the old view.
+            try (FileChannel channel = FileChannel.open(SEGMENT_DIR.resolve(name), StandardOpenOption.READ)) {
+                view = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            mapped.put(name, view);
+        }
+        return view;
+    }
+
+    /**
+     * Writes every stored block of {@code jobId} to {@code out}, falling back to a log file
+     * written before segmented storage. Returns false if the job has no output at all.
+     */
+    public boolean copyTo(String jobId, OutputStream out) throws IOException {
+        List<Chunk> chunks = chunks(jobId, 0, -1);
+        for (Chunk chunk : chunks) {
+            out.write(read(chunk));
+        }
+        Path legacy = legacyFile(jobId);
+        if (chunks.isEmpty() && Files.exists(legacy)) {
+            Files.copy(legacy, out);
+            return true;
+        }
+        return !chunks.isEmpty();
+    }
+
+    /**
+     * Bytes of output stored for {@code jobId}, before compression.
+     */
+    public long size(String jobId) {
+        long total = 0;
+        for (Chunk chunk : chunks(jobId, 0, -1)) {
+            total += chunk.rawLength;
+        }
+        try {
+            Path legacy = legacyFile(jobId);
+            if (Files.exists(legacy)) {
+                total += Files.size(legacy);
+            }
+        } catch (IOException e) {
+            // ignore
+        }
+        return total;
+    }
+
+    public static Path legacyFile(String jobId) {
+        return LOG_DIR.resolve(jobId + ".log");
+    }
+
+    /**
+     * Deletes segment files no index entry points at any more. Segments still being appended
+     * to are kept: this process's active segment and the newest one of every other live process.
+     * Returns the bytes freed.
+     */
+    public long sweepSegments() throws IOException {
+        if (!Files.isDirectory(SEGMENT_DIR)) {
+            return 0;
+        }
+        // Snapshot what this process is writing before reading the index: a block in any other
+        // segment of ours was indexed by then, so the index read below sees it.
+        Set<String> writing = new HashSet<>();
+        segmentLock.lock();
+        try {
+            if (segmentName != null) {
+                writing.add(segmentName);
+            }
+            writing.addAll(unindexed.keySet());
+        } finally {
+            segmentLock.unlock();
+        }
+        long self = ProcessHandle.current().pid();
+        List<Path> files = new ArrayList<>();
+        Map<Long, Long> newest = new HashMap<>();
+        try (DirectoryStream<Path> listing = Files.newDirectoryStream(SEGMENT_DIR, "*.seg")) {
+            for (Path file : listing) {
+                files.add(file);
+                long[] owner = parseSegmentName(file.getFileName().toString());
+                if (owner != null && owner[0] != self) {
+                    newest.merge(owner[0], owner[1], Math::max);
+                }
+            }
+        }
+
+        Set<String> referenced = new HashSet<>();
+        try (Connection conn = jobStore.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT DISTINCT segment FROM job_log_chunks");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                referenced.add(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not read log index: " + e.getMessage(), e);
+        }
+
+        long now = System.currentTimeMillis();
+        Map<Long, Boolean> alive = new HashMap<>();
+        Map<Path, Long> unused = new LinkedHashMap<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (referenced.contains(name) || writing.contains(name)) {
+                continue;
+            }
+            long[] owner = parseSegmentName(name);
+            if (owner != null && owner[0] != self
+                    && alive.computeIfAbsent(owner[0], LogStore::processAlive)
+                    && (owner[1] == newest.get(owner[0])
+                        || now - Files.getLastModifiedTime(file).toMillis() < FOREIGN_SEGMENT_GRACE_MILLIS)) {
+                continue;
+            }
+            unused.put(file, Files.size(file));
+        }
+        long freed = 0;
+        for (Map.Entry<Path, Long> entry : unused.entrySet()) {
+            mapped.remove(entry.getKey().getFileName().toString());
+            Files.deleteIfExists(entry.getKey());
+            freed += entry.getValue();
+        }
+        return freed;
+    }
+
+    /**
+     * {@code {pid, seq}} of a segment named {@code <pid>-<seq>.seg}, or null for any other name.
+     */
+    private static long[] parseSegmentName(String name) {
+        try {
+            int dash = name.indexOf('-');
+            return new long[] {
+                    Long.parseLong(name.substring(0, dash)),
+                    Long.parseLong(name.substring(dash + 1, name.length() - ".seg".length()))};
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean processAlive(long pid) {
+        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+}
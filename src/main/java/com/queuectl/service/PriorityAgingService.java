@@ -0,0 +1,82 @@
+package com.queuectl.service;
+
+import java.time.Duration;
+
+/**
+ * Keeps low-priority jobs from starving. Every {@code aging-interval} a PENDING job waits, its
+ * effective priority (what claims order by) goes up by one, up to {@code aging-max-boost} above
+ * its own priority (0 means no limit). Promotion walks a partial index on the time of each job's
+ * last raise, so a pass only touches jobs that are due one.
+ *
+ * Every worker process runs this; a job raised by one process is not due again for the others.
+ */
+public class PriorityAgingService {
+    private static final int CHUNK_SIZE = 1_000;
+    private static final long IDLE_MILLIS = 1_000;
+    private static final long MIN_TICK_MILLIS = 100;
+
+    private final JobStore jobStore = JobStore.getInstance();
+    private final ConfigService config = ConfigService.getInstance();
+    private Thread thread;
+    private volatile boolean running = true;
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "queuectl-aging");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Raises every job that is due a raise at {@code now}. Returns how many were raised.
+     */
+    public int promote(long now) throws Exception {
+        long interval = interval().toMillis();
+        if (interval <= 0) {
+            return 0;
+        }
+        int maxBoost = config.getConfigAsInt("aging-max-boost", 0);
+        int total = 0;
+        int promoted;
+        do {
+            // Small chunks keep each write transaction short next to the claims.
+            promoted = jobStore.promoteWaitingJobs(now - interval, now, maxBoost, CHUNK_SIZE);
+            total += promoted;
+        } while (promoted == CHUNK_SIZE && running);
+        return total;
+    }
+
+    private Duration interval() {
+        return config.getConfigAsDuration("aging-interval", Duration.ZERO);
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                promote(System.currentTimeMillis());
+                long interval = interval().toMillis();
+                // A quarter interval between passes keeps each raise within 25% of when it is due.
+                Thread.sleep(interval <= 0 ? IDLE_MILLIS : Math.max(MIN_TICK_MILLIS, Math.min(IDLE_MILLIS, interval / 4)));
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("[Aging] Error: " + e.getMessage());
+            }
+        }
+    }
+}
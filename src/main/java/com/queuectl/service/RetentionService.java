@@ -0,0 +1,294 @@
+package com.queuectl.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.queuectl.model.Job;
+import com.queuectl.model.JobState;
+
+/**
+ * Removes finished jobs that fall outside the configured retention, together with their
+ * output. Policies are per state ({@code retention-completed-age}, {@code retention-completed-count},
+ * {@code retention-dead-age}, {@code retention-dead-count}); with {@code retention-archive} on,
+ * rows are appended to {@code ~/.queuectl/archive/jobs-<date>.jsonl.gz} and logs are gzipped into
+ * the archive instead of being dropped.
+ *
+ * Work is done in small chunks, each its own short write transaction, with a pause in between
+ * so workers can keep claiming. The worker process runs a pass every {@code retention-interval};
+ * {@code queuectl gc} runs one on demand.
+ */
+public class RetentionService {
+    private static final JobState[] FINISHED = {JobState.COMPLETED, JobState.DEAD};
+    private static final int CHUNK_SIZE = 200;
+    private static final long CHUNK_PAUSE_MILLIS = 20;
+    private static final int VACUUM_PAGES_PER_CHUNK = 1_000;
+    private static final Duration DEFAULT_INTERVAL = Duration.ofHours(1);
+    private static final Path QUEUECTL_DIR = Paths.get(System.getProperty("user.home"), ".queuectl");
+    private static final Path ARCHIVE_DIR = QUEUECTL_DIR.resolve("archive");
+
+    private final JobStore jobStore = JobStore.getInstance();
+    private final ConfigService config = ConfigService.getInstance();
+    private final LogStore logStore = LogStore.getInstance();
+    private final ObjectWriter jsonLine = new ObjectMapper().writerFor(Job.class);
+    private Thread thread;
+    private volatile boolean running = true;
+
+    /** Outcome of one pass, per state. */
+    public static class Report {
+        public final Map<JobState, Integer> jobs = new LinkedHashMap<>();
+        public final Map<JobState, Long> logBytes = new LinkedHashMap<>();
+        public long freePages;
+        public long pageSize;
+        public boolean incrementalVacuum;
+
+        public int totalJobs() {
+            return jobs.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "queuectl-retention");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                if (hasPolicy()) {
+                    Report report = run(false);
+                    if (report.totalJobs() > 0) {
+                        System.out.printf("[Retention] Removed %d finished job(s).%n", report.totalJobs());
+                    }
+                }
+                Thread.sleep(config.getConfigAsDuration("retention-interval", DEFAULT_INTERVAL).toMillis());
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("[Retention] Error: " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean hasPolicy() {
+        for (JobState state : FINISHED) {
+            if (maxAge(state).toMillis() > 0 || keep(state) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs one retention pass. With {@code dryRun} nothing is changed and the report says what
+     * would be removed.
+     */
+    public Report run(boolean dryRun) throws InterruptedException {
+        Report report = new Report();
+        boolean archive = config.getConfigAsBoolean("retention-archive", false);
+        for (JobState state : FINISHED) {
+            long cutoff = jobStore.retentionCutoff(state, maxAge(state).toMillis(), keep(state));
+            int removed = 0;
+            long bytes = 0;
+            Job after = null;
+            while (running && cutoff != Long.MIN_VALUE) {
+                List<Job> chunk = jobStore.findFinishedBefore(state, cutoff, dryRun ? after : null, CHUNK_SIZE);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                after = chunk.get(chunk.size() - 1);
+                if (dryRun) {
+                    removed += chunk.size();
+                    for (Job job : chunk) {
+                        bytes += logStore.size(job.getId());
+                    }
+                    continue;
+                }
+                // A job's index entries go with its row, so sizes and log copies come first.
+                Map<String, Long> logSizes = new HashMap<>();
+                Map<String, Path> stagedLogs = new HashMap<>();
+                for (Job job : chunk) {
+                    logSizes.put(job.getId(), logStore.size(job.getId()));
+                    if (archive) {
+                        Path staged = stageLog(job.getId());
+                        if (staged != null) {
+                            stagedLogs.put(job.getId(), staged);
+                        }
+                    }
+                }
+                List<String> deleted = jobStore.deleteFinishedJobs(chunk);
+                removed += deleted.size();
+                if (archive) {
+                    // Rows that changed before the delete stay live; only archive what went.
+                    Set<String> gone = new HashSet<>(deleted);
+                    List<Job> archived = new ArrayList<>();
+                    for (Job job : chunk) {
+                        if (gone.contains(job.getId())) {
+                            archived.add(job);
+                        }
+                    }
+                    archiveRows(archived);
+                    for (Map.Entry<String, Path> staged : stagedLogs.entrySet()) {
+                        publishLog(staged.getKey(), staged.getValue(), gone.contains(staged.getKey()));
+                    }
+                }
+                for (String id : deleted) {
+                    bytes += logSizes.getOrDefault(id, 0L);
+                    deleteLegacyLog(id);
+                }
+                if (deleted.isEmpty()) {
+                    // Every row changed under us; stop rather than spin on the same chunk.
+                    break;
+                }
+                try {
+                    jobStore.incrementalVacuum(VACUUM_PAGES_PER_CHUNK);
+                } catch (Exception e) {
+                    // vacuum is best effort
+                }
+                Thread.sleep(CHUNK_PAUSE_MILLIS);
+            }
+            report.jobs.put(state, removed);
+            report.logBytes.put(state, bytes);
+        }
+
+        if (!dryRun) {
+            try {
+                logStore.sweepSegments();
+            } catch (IOException e) {
+                System.err.println("[Retention] Could not sweep log segments: " + e.getMessage());
+            }
+        }
+
+        try {
+            // Like the deletes, the freelist goes back in small transactions with pauses between.
+            long[] vacuum = jobStore.incrementalVacuum(dryRun ? 0 : VACUUM_PAGES_PER_CHUNK);
+            while (!dryRun && running && vacuum[0] == 2 && vacuum[1] > 0) {
+                Thread.sleep(CHUNK_PAUSE_MILLIS);
+                long before = vacuum[1];
+                vacuum = jobStore.incrementalVacuum(VACUUM_PAGES_PER_CHUNK);
+                if (vacuum[1] >= before) {
+                    break;
+                }
+            }
+            report.incrementalVacuum = vacuum[0] == 2;
+            report.freePages = vacuum[1];
+            report.pageSize = vacuum[2];
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("[Retention] Vacuum failed: " + e.getMessage());
+        }
+        return report;
+    }
+
+    private Duration maxAge(JobState state) {
+        return config.getConfigAsDuration("retention-" + state.name().toLowerCase() + "-age", Duration.ZERO);
+    }
+
+    private int keep(JobState state) {
+        return config.getConfigAsInt("retention-" + state.name().toLowerCase() + "-count", 0);
+    }
+
+    private void archiveRows(List<Job> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        Path file = ARCHIVE_DIR.resolve("jobs-" + LocalDate.now() + ".jsonl.gz");
+        try {
+            Files.createDirectories(ARCHIVE_DIR);
+            // Each chunk is its own gzip member; concatenated members read back as one stream.
+            try (OutputStream raw = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                 BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(raw), StandardCharsets.UTF_8))) {
+                for (Job job : jobs) {
+                    out.write(jsonLine.writeValueAsString(job));
+                    out.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write archive " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gzips the job's log next to its archive slot and returns the staged file, or null if the
+     * job has no log. {@link #publishLog} later keeps or discards it.
+     */
+    private Path stageLog(String id) {
+        Path staged = logArchivePath(id).resolveSibling(id + ".log.gz.part");
+        try {
+            Files.createDirectories(staged.getParent());
+            boolean found;
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(staged))) {
+                found = logStore.copyTo(id, out);
+            }
+            if (!found) {
+                Files.delete(staged);
+                return null;
+            }
+            return staged;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not archive log of " + id + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void publishLog(String id, Path staged, boolean deleted) {
+        try {
+            if (deleted) {
+                Files.move(staged, logArchivePath(id), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(staged);
+            }
+        } catch (IOException e) {
+            System.err.println("[Retention] Could not archive log of " + id + ": " + e.getMessage());
+        }
+    }
+
+    private static Path logArchivePath(String id) {
+        return ARCHIVE_DIR.resolve("logs").resolve(id + ".log.gz");
+    }
+
+    private static void deleteLegacyLog(String id) {
+        Path log = LogStore.legacyFile(id);
+        try {
+            Files.deleteIfExists(log);
+        } catch (IOException e) {
+            System.err.println("[Retention] Could not remove log " + log + ": " + e.getMessage());
+        }
+    }
+}
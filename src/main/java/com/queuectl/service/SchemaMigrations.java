@@ -0,0 +1,319 @@
+package com.queuectl.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Versioned schema changes, applied at startup. The applied version is kept in SQLite's
+ * {@code user_version} pragma. Append new migrations to the end of the list and never
+ * edit one that has already shipped.
+ */
+final class SchemaMigrations {
+
+    private interface Migration {
+        void apply(Connection conn, Statement stmt) throws SQLException;
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            SchemaMigrations::createBaseTables,
+            SchemaMigrations::addWorkerId,
+            SchemaMigrations::addReadyIndexes,
+            SchemaMigrations::addDelayedDueIndex,
+            SchemaMigrations::addConfigVersion,
+            SchemaMigrations::addJobCounts,
+            SchemaMigrations::addListingKeyIndex,
+            SchemaMigrations::addFinishedIndex,
+            SchemaMigrations::addLogIndex,
+            SchemaMigrations::addQueues,
+            SchemaMigrations::addPriorityAging,
+            SchemaMigrations::addLeases,
+            SchemaMigrations::addDependencies,
+            SchemaMigrations::addDedupeKeys,
+            SchemaMigrations::addJobGroups
+    );
+
+    private SchemaMigrations() {}
+
+    static int latestVersion() {
+        return MIGRATIONS.size();
+    }
+
+    static void migrate(Connection conn) throws SQLException {
+        if (userVersion(conn) >= latestVersion()) {
+            return;
+        }
+        if (userVersion(conn) == 0 && !hasTable(conn, "jobs")) {
+            // Brand-new file: switching vacuum mode needs a VACUUM, which is instant while it is empty.
+            // Older databases opt in with `gc --vacuum`.
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                stmt.execute("VACUUM");
+            }
+        }
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            // Re-read under the write lock in case another process migrated first.
+            for (int version = userVersion(conn); version < latestVersion(); version++) {
+                MIGRATIONS.get(version).apply(conn, stmt);
+                stmt.execute("PRAGMA user_version = " + (version + 1));
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static int userVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    static boolean hasTable(Connection conn, String table) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // 1: the original schema. IF NOT EXISTS keeps it safe on databases created before versioning.
+    private static void createBaseTables(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS jobs (" +
+                "id TEXT PRIMARY KEY, " +
+                "command TEXT NOT NULL, " +
+                "state TEXT NOT NULL, " +
+                "attempts INTEGER NOT NULL, " +
+                "max_retries INTEGER NOT NULL, " +
+                "created_at INTEGER NOT NULL, " +
+                "updated_at INTEGER NOT NULL, " +
+                "next_execution_time INTEGER NOT NULL, " +
+                "priority INTEGER NOT NULL DEFAULT 0, " +
+                "timeout INTEGER NOT NULL DEFAULT 300, " +
+                "output TEXT" +
+                ")");
+        stmt.execute("CREATE TABLE IF NOT EXISTS config (" +
+                "key TEXT PRIMARY KEY, " +
+                "value TEXT NOT NULL" +
+                ")");
+    }
+
+    // 2: owner of a leased job.
+    private static void addWorkerId(Connection conn, Statement stmt) throws SQLException {
+        if (!hasColumn(conn, "jobs", "worker_id")) {
+            stmt.execute("ALTER TABLE jobs ADD COLUMN worker_id TEXT");
+        }
+    }
+
+    // 3: partial covering indexes for the two halves of the ready set, plus per-state listing.
+    private static void addReadyIndexes(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_pending " +
+                "ON jobs(priority DESC, created_at ASC, id) WHERE state = 'PENDING'");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_failed_due " +
+                "ON jobs(next_execution_time, priority, created_at, id) WHERE state = 'FAILED'");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_state_created ON jobs(state, created_at)");
+    }
+
+    // 4: SCHEDULED jobs share the time-ordered half of the ready set with FAILED retries.
+    private static void addDelayedDueIndex(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("DROP INDEX IF EXISTS idx_jobs_failed_due");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_delayed_due " +
+                "ON jobs(next_execution_time, priority, created_at, id) WHERE state IN ('FAILED', 'SCHEDULED')");
+    }
+
+    // 5: a counter bumped on every config change, so processes can cache the table and poll one row.
+    private static void addConfigVersion(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS config_version (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                "version INTEGER NOT NULL" +
+                ")");
+        stmt.execute("INSERT OR IGNORE INTO config_version (id, version) VALUES (1, 0)");
+        for (String event : new String[] {"INSERT", "UPDATE", "DELETE"}) {
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS trg_config_version_" + event.toLowerCase() +
+                    " AFTER " + event + " ON config BEGIN " +
+                    "UPDATE config_version SET version = version + 1 WHERE id = 1; END");
+        }
+    }
+
+    // 6: per-state job counts kept current by triggers, so status never scans the jobs table.
+    private static void addJobCounts(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_counts (" +
+                "state TEXT PRIMARY KEY, " +
+                "count INTEGER NOT NULL" +
+                ")");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS trg_job_counts_insert AFTER INSERT ON jobs BEGIN " +
+                "INSERT INTO job_counts (state, count) VALUES (NEW.state, 1) " +
+                "ON CONFLICT(state) DO UPDATE SET count = count + 1; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS trg_job_counts_delete AFTER DELETE ON jobs BEGIN " +
+                "UPDATE job_counts SET count = count - 1 WHERE state = OLD.state; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS trg_job_counts_update AFTER UPDATE OF state ON jobs " +
+                "WHEN OLD.state IS NOT NEW.state BEGIN " +
+                "UPDATE job_counts SET count = count - 1 WHERE state = OLD.state; " +
+                "INSERT INTO job_counts (state, count) VALUES (NEW.state, 1) " +
+                "ON CONFLICT(state) DO UPDATE SET count = count + 1; END");
+        stmt.execute("INSERT INTO job_counts (state, count) SELECT state, COUNT(*) FROM jobs GROUP BY state");
+    }
+
+    // 7: listing pages by (created_at, id) within a state; id breaks ties between jobs created in the same millisecond.
+    private static void addListingKeyIndex(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("DROP INDEX IF EXISTS idx_jobs_state_created");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_state_created_id ON jobs(state, created_at, id)");
+    }
+
+    // 8: finished jobs by completion time, for retention.
+    private static void addFinishedIndex(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_finished " +
+                "ON jobs(state, updated_at, id) WHERE state IN ('COMPLETED', 'DEAD')");
+    }
+
+    // 9: where each block of a job's output sits in the log segments; entries go with the job.
+    private static void addLogIndex(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_log_chunks (" +
+                "job_id TEXT NOT NULL, " +
+                "run INTEGER NOT NULL, " +
+                "block INTEGER NOT NULL, " +
+                "segment TEXT NOT NULL, " +
+                "segment_offset INTEGER NOT NULL, " +
+                "length INTEGER NOT NULL, " +
+                "raw_length INTEGER NOT NULL, " +
+                "codec INTEGER NOT NULL, " +
+                "PRIMARY KEY (job_id, run, block)" +
+                ") WITHOUT ROWID");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS trg_job_log_chunks_delete AFTER DELETE ON jobs BEGIN " +
+                "DELETE FROM job_log_chunks WHERE job_id = OLD.id; END");
+    }
+
+    // 10: named queues. The ready-set indexes lead with the queue so each queue is claimed from its
+    // own index range, and job_counts is kept per (queue, state).
+    private static void addQueues(Connection conn, Statement stmt) throws SQLException {
+        if (!hasColumn(conn, "jobs", "queue")) {
+            stmt.execute("ALTER TABLE jobs ADD COLUMN queue TEXT NOT NULL DEFAULT 'default'");
+        }
+        stmt.execute("DROP INDEX IF EXISTS idx_jobs_pending");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_queue_pending " +
+                "ON jobs(queue, priority DESC, created_at ASC, id) WHERE state = 'PENDING'");
+        stmt.execute("DROP INDEX IF EXISTS idx_jobs_delayed_due");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_queue_delayed_due " +
+                "ON jobs(queue, next_execution_time, priority, created_at, id) WHERE state IN ('FAILED', 'SCHEDULED')");
+
+        stmt.execute("DROP TRIGGER IF EXISTS trg_job_counts_insert");
+        stmt.execute("DROP TRIGGER IF EXISTS trg_job_counts_delete");
+        stmt.execute("DROP TRIGGER IF EXISTS trg_job_counts_update");
+        stmt.execute("DROP TABLE IF EXISTS job_counts");
+        stmt.execute("CREATE TABLE job_counts (" +
+                "queue TEXT NOT NULL, " +
+                "state TEXT NOT NULL, " +
+                "count INTEGER NOT NULL, " +
+                "PRIMARY KEY (queue, state)" +
+                ") WITHOUT ROWID");
+        stmt.execute("CREATE TRIGGER trg_job_counts_insert AFTER INSERT ON jobs BEGIN " +
+                "INSERT INTO job_counts (queue, state, count) VALUES (NEW.queue, NEW.state, 1) " +
+                "ON CONFLICT(queue, state) DO UPDATE SET count = count + 1; END");
+        stmt.execute("CREATE TRIGGER trg_job_counts_delete AFTER DELETE ON jobs BEGIN " +
+                "UPDATE job_counts SET count = count - 1 WHERE queue = OLD.queue AND state = OLD.state; END");
+        stmt.execute("CREATE TRIGGER trg_job_counts_update AFTER UPDATE OF state, queue ON jobs " +
+                "WHEN OLD.state IS NOT NEW.state OR OLD.queue IS NOT NEW.queue BEGIN " +
+                "UPDATE job_counts SET count = count - 1 WHERE queue = OLD.queue AND state = OLD.state; " +
+                "INSERT INTO job_counts (queue, state, count) VALUES (NEW.queue, NEW.state, 1) " +
+                "ON CONFLICT(queue, state) DO UPDATE SET count = count + 1; END");
+        JobStore.rebuildJobCounts(stmt);
+    }
+
+    // 11: priority aging. Jobs are claimed by effective_priority, which starts at priority and is
+    // raised by one for every aging interval a job waits; aged_at is when that last happened.
+    private static void addPriorityAging(Connection conn, Statement stmt) throws SQLException {
+        if (!hasColumn(conn, "jobs", "effective_priority")) {
+            stmt.execute("ALTER TABLE jobs ADD COLUMN effective_priority INTEGER NOT NULL DEFAULT 0");
+            stmt.execute("ALTER TABLE jobs ADD COLUMN aged_at INTEGER NOT NULL DEFAULT 0");
+            stmt.execute("UPDATE jobs SET effective_priority = priority, aged_at = created_at");
+        }
+        stmt.execute("DROP INDEX IF EXISTS idx_jobs_queue_pending");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_queue_ready " +
+                "ON jobs(queue, effective_priority DESC, created_at ASC, id) WHERE state = 'PENDING'");
+        stmt.execute("DROP INDEX IF EXISTS idx_jobs_queue_delayed_due");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_queue_due " +
+                "ON jobs(queue, next_execution_time, effective_priority, created_at, id) " +
+                "WHERE state IN ('FAILED', 'SCHEDULED')");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_aging ON jobs(aged_at) WHERE state = 'PENDING'");
+    }
+
+    // 12: leases on claimed jobs. Jobs left PROCESSING by older versions start out expired, so the
+    // first reaper pass returns them to the queue.
+    private static void addLeases(Connection conn, Statement stmt) throws SQLException {
+        if (!hasColumn(conn, "jobs", "lease_expires_at")) {
+            stmt.execute("ALTER TABLE jobs ADD COLUMN lease_expires_at INTEGER NOT NULL DEFAULT 0");
+        }
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_leases ON jobs(lease_expires_at) WHERE state = 'PROCESSING'");
+    }
+
+    // 13: job dependencies. A child waits BLOCKED with pending_parents counting its unfinished
+    // parents; the parent's completion releases its children through the primary key range.
+    private static void addDependencies(Connection conn, Statement stmt) throws SQLException {
+        if (!hasColumn(conn, "jobs", "pending_parents")) {
+            stmt.execute("ALTER TABLE jobs ADD COLUMN pending_parents INTEGER NOT NULL DEFAULT 0");
+        }
+        stmt.execute("CREATE TABLE IF NOT EXISTS job_dependencies (" +
+                "parent_id TEXT NOT NULL, " +
+                "child_id TEXT NOT NULL, " +
+                "PRIMARY KEY (parent_id, child_id)" +
+                ") WITHOUT ROWID");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_job_dependencies_child ON job_dependencies(child_id)");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS trg_job_dependencies_delete AFTER DELETE ON jobs BEGIN " +
+                "DELETE FROM job_dependencies WHERE parent_id = OLD.id; " +
+                "DELETE FROM job_dependencies WHERE child_id = OLD.id; END");
+    }
+
+    // 14: dedupe keys. A key is held by one job until dedupe_expires_at; the next enqueue with the
+    // key after that clears it from the old job first.
+    private static void addDedupeKeys(Connection conn, Statement stmt) throws SQLException {
+        if (!hasColumn(conn, "jobs", "dedupe_key")) {
+            stmt.execute("ALTER TABLE jobs ADD COLUMN dedupe_key TEXT");
+            stmt.execute("ALTER TABLE jobs ADD COLUMN dedupe_expires_at INTEGER NOT NULL DEFAULT 0");
+        }
+        stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_jobs_dedupe_key ON jobs(dedupe_key) WHERE dedupe_key IS NOT NULL");
+    }
+
+    // 15: job groups with shared limits. The ready-set indexes gain job_group so claims can pass
+    // over a saturated group's jobs without reading their rows; group_buckets holds the token
+    // bucket of each rate-limited group.
+    private static void addJobGroups(Connection conn, Statement stmt) throws SQLException {
+        if (!hasColumn(conn, "jobs", "job_group")) {
+            stmt.execute("ALTER TABLE jobs ADD COLUMN job_group TEXT");
+        }
+        stmt.execute("DROP INDEX IF EXISTS idx_jobs_queue_ready");
+        stmt.execute("CREATE INDEX idx_jobs_queue_ready " +
+                "ON jobs(queue, effective_priority DESC, created_at ASC, id, job_group) WHERE state = 'PENDING'");
+        stmt.execute("DROP INDEX IF EXISTS idx_jobs_queue_due");
+        stmt.execute("CREATE INDEX idx_jobs_queue_due " +
+                "ON jobs(queue, next_execution_time, effective_priority, created_at, id, job_group) " +
+                "WHERE state IN ('FAILED', 'SCHEDULED')");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_group_running ON jobs(job_group) WHERE state = 'PROCESSING'");
+        stmt.execute("CREATE TABLE IF NOT EXISTS group_buckets (" +
+                "job_group TEXT PRIMARY KEY, " +
+                "tokens REAL NOT NULL, " +
+                "updated_at INTEGER NOT NULL" +
+                ") WITHOUT ROWID");
+    }
+}
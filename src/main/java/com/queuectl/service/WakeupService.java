@@ -0,0 +1,185 @@
+package com.queuectl.service;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Wakes idle workers when new work shows up, so they can park instead of polling the database.
+ *
+ * Inside a process, {@link #signal()} bumps a generation counter and wakes every parked worker.
+ * Across processes, each worker process listens on a loopback UDP port advertised in
+ * {@code ~/.queuectl/wakeup/<pid>.port}, and {@link #notifyWorkers()} pings every advertised port.
+ * A lost datagram only delays pickup until the worker's idle deadline.
+ *
+ * Work that only becomes ready later is announced with its due time; a worker process hands
+ * those deadlines to its registered scheduler, which signals once they pass.
+ *
+ * Workers park on a {@link ReentrantLock} condition rather than a monitor, so a parked virtual
+ * thread releases its carrier. Worker-path code that may block while holding a lock (JDBC reads,
+ * file writes) uses {@code ReentrantLock} for the same reason.
+ */
+public class WakeupService {
+    private static final Path WAKEUP_DIR = Paths.get(System.getProperty("user.home"), ".queuectl", "wakeup");
+    private static WakeupService instance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long generation;
+    private volatile LongConsumer scheduler;
+    private DatagramSocket socket;
+    private Path portFile;
+
+    private WakeupService() {}
+
+    public static synchronized WakeupService getInstance() {
+        if (instance == null) {
+            instance = new WakeupService();
+        }
+        return instance;
+    }
+
+    public long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void signal() {
+        lock.lock();
+        try {
+            generation++;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Announces work that becomes ready at {@code dueMillis}. Work that is already due signals
+     * right away; later deadlines go to the scheduler, if this process has one.
+     */
+    public void signalAt(long dueMillis) {
+        LongConsumer current = scheduler;
+        if (dueMillis <= System.currentTimeMillis()) {
+            signal();
+        } else if (current != null) {
+            current.accept(dueMillis);
+        }
+    }
+
+    public void setScheduler(LongConsumer scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Parks until {@link #signal()} has been called since {@code seenGeneration} was read,
+     * or until the wall-clock {@code deadlineMillis} passes.
+     */
+    public void awaitWork(long seenGeneration, long deadlineMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            while (generation == seenGeneration) {
+                long remaining = deadlineMillis - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return;
+                }
+                changed.await(remaining, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public synchronized void startListener() throws IOException {
+        if (socket != null) {
+            return;
+        }
+        socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        Files.createDirectories(WAKEUP_DIR);
+        portFile = WAKEUP_DIR.resolve(ProcessHandle.current().pid() + ".port");
+        Files.write(portFile, String.valueOf(socket.getLocalPort()).getBytes(StandardCharsets.UTF_8));
+
+        DatagramSocket listening = socket;
+        Thread listener = new Thread(() -> {
+            DatagramPacket packet = new DatagramPacket(new byte[64], 64);
+            while (!listening.isClosed()) {
+                try {
+                    listening.receive(packet);
+                    if (packet.getLength() >= Long.BYTES) {
+                        signalAt(ByteBuffer.wrap(packet.getData(), 0, Long.BYTES).getLong());
+                    } else {
+                        signal();
+                    }
+                } catch (IOException e) {
+                    // socket closed on shutdown
+                }
+            }
+        }, "queuectl-wakeup");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    public synchronized void stopListener() {
+        if (socket != null) {
+            socket.close();
+            socket = null;
+        }
+        if (portFile != null) {
+            try {
+                Files.deleteIfExists(portFile);
+            } catch (IOException e) {
+                // ignore
+            }
+            portFile = null;
+        }
+    }
+
+    public static void notifyWorkers() {
+        notifyWorkers(0);
+    }
+
+    /**
+     * Tells every worker process advertised in the wakeup directory that work is ready at
+     * {@code dueMillis}. Best effort: failures are ignored.
+     */
+    public static void notifyWorkers(long dueMillis) {
+        if (!Files.isDirectory(WAKEUP_DIR)) {
+            return;
+        }
+        try (DatagramSocket sender = new DatagramSocket();
+             DirectoryStream<Path> files = Files.newDirectoryStream(WAKEUP_DIR, "*.port")) {
+            byte[] payload = ByteBuffer.allocate(Long.BYTES).putLong(dueMillis).array();
+            for (Path file : files) {
+                try {
+                    String name = file.getFileName().toString();
+                    long pid = Long.parseLong(name.substring(0, name.length() - ".port".length()));
+                    if (!ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false)) {
+                        Files.deleteIfExists(file);
+                        continue;
+                    }
+                    int port = Integer.parseInt(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+                    sender.send(new DatagramPacket(payload, payload.length, InetAddress.getLoopbackAddress(), port));
+                } catch (IOException | NumberFormatException e) {
+                    // Skip this worker; it falls back to its idle deadline.
+                }
+            }
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -1,31 +1,84 @@
 package com.queuectl.service;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import com.queuectl.daemon.DaemonServer;
+import com.queuectl.metrics.Metrics;
+import com.queuectl.worker.Autoscaler;
 import com.queuectl.worker.JobWorker;
+import com.queuectl.worker.TimerService;
+import com.queuectl.worker.WorkerThreads;
 
 public class WorkerService {
     private static final Path PID_FILE = Paths.get(System.getProperty("user.home"), ".queuectl", "worker.pid");
     private ExecutorService executor;
     private List<JobWorker> workers;
+    private final TimerService timers = new TimerService();
+    private final RetentionService retention = new RetentionService();
+    private final PriorityAgingService aging = new PriorityAgingService();
+    private final String workerId = workerId();
+    private final LeaseService leases = new LeaseService(workerId);
+    private DaemonServer daemon;
+    private Autoscaler autoscaler;
+    private ThreadFactory ioThreads;
+    private Semaphore slots;
+    private boolean stopping;
 
-    public void start(int count) {
+    public void start(int count, boolean serveDaemon, int daemonPort) {
+        start(count, count, serveDaemon, daemonPort);
+    }
+
+    /**
+     * Starts {@code min} workers. When {@code max} is larger, an {@link Autoscaler} grows and
+     * shrinks the pool between the two.
+     */
+    public void start(int min, int max, boolean serveDaemon, int daemonPort) {
         if (isAlreadyRunning()) {
             System.err.println("Workers already running (PID: " + getRunningPid() + "). Stop them first.");
             return;
         }
 
-        System.out.printf("Starting %d workers...%n", count);
-        executor = Executors.newFixedThreadPool(count);
-        workers = new ArrayList<>();
+        ConfigService config = ConfigService.getInstance();
+        String threadMode = config.getConfig("thread-mode");
+        if (threadMode == null) {
+            threadMode = WorkerThreads.MODE_AUTO;
+        }
+        if (WorkerThreads.MODE_VIRTUAL.equalsIgnoreCase(threadMode) && !WorkerThreads.virtualThreadsAvailable()) {
+            System.err.println("Virtual threads need Java 21 or newer; using platform threads.");
+        }
+        boolean virtual = WorkerThreads.useVirtual(threadMode);
+        int maxConcurrent = config.getConfigAsInt("max-concurrent-jobs", 0);
+        slots = maxConcurrent > 0 && maxConcurrent < max ? new Semaphore(maxConcurrent) : null;
+
+        ThreadFactory workerThreads;
+        try {
+            workerThreads = WorkerThreads.workerFactory(threadMode);
+            ioThreads = WorkerThreads.ioFactory(threadMode);
+        } catch (IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+
+        System.out.printf("Starting %s workers on %s threads%s...%n",
+                max > min ? min + " (autoscaling up to " + max + ")" : String.valueOf(min),
+                virtual ? "virtual" : "platform",
+                slots != null ? " (at most " + maxConcurrent + " jobs at once)" : "");
+        // Threads are only created as workers are added, and reused after scale-downs.
+        executor = Executors.newFixedThreadPool(max, workerThreads);
+        workers = new CopyOnWriteArrayList<>();
 
         try {
             writePidFile();
@@ -34,12 +87,54 @@ public class WorkerService {
             return;
         }
 
+        try {
+            WakeupService.getInstance().startListener();
+        } catch (IOException e) {
+            System.err.println("Could not open wakeup channel, falling back to polling: " + e.getMessage());
+        }
+        timers.start();
+        Metrics.getInstance().startCollecting();
+        retention.start();
+        aging.start();
+        leases.start();
+
+        if (serveDaemon) {
+            daemon = new DaemonServer(daemonPort);
+            try {
+                daemon.start();
+            } catch (Exception e) {
+                System.err.println("Could not start daemon endpoint, commands will run locally: " + e.getMessage());
+                daemon.stop();
+                daemon = null;
+            }
+        }
+
         Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
 
-        for (int i = 0; i < count; i++) {
-            JobWorker worker = new JobWorker();
-            workers.add(worker);
-            executor.submit(worker);
+        addWorkers(min);
+        if (max > min) {
+            autoscaler = new Autoscaler(new Autoscaler.Pool() {
+                @Override
+                public int size() {
+                    return workers.size();
+                }
+
+                @Override
+                public int busy() {
+                    return (int) workers.stream().filter(JobWorker::isBusy).count();
+                }
+
+                @Override
+                public void grow(int count) {
+                    addWorkers(count);
+                }
+
+                @Override
+                public void shrink(int count) {
+                    removeWorkers(count);
+                }
+            }, min, max);
+            autoscaler.start();
         }
         
         System.out.println("Workers started. Press Ctrl+C to stop.");
@@ -75,11 +170,50 @@ public class WorkerService {
         }
     }
 
-    private void shutdown() {
-        System.out.println("\nGraceful shutdown initiated...");
+    private synchronized void addWorkers(int count) {
+        if (stopping) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            JobWorker worker = new JobWorker(workerId, ioThreads, slots);
+            workers.add(worker);
+            executor.submit(worker);
+        }
+    }
+
+    /**
+     * Stops {@code count} workers, idle ones first. A busy worker finishes its job before it
+     * exits and frees its thread.
+     */
+    private synchronized void removeWorkers(int count) {
+        List<JobWorker> victims = new ArrayList<>(count);
+        for (JobWorker worker : workers) {
+            if (victims.size() < count && !worker.isBusy()) {
+                victims.add(worker);
+            }
+        }
+        for (JobWorker worker : workers) {
+            if (victims.size() < count && !victims.contains(worker)) {
+                victims.add(worker);
+            }
+        }
+        workers.removeAll(victims);
+        victims.forEach(JobWorker::stop);
+    }
+
+    private synchronized void stopWorkers() {
+        stopping = true;
         if (workers != null) {
             workers.forEach(JobWorker::stop);
         }
+    }
+
+    private void shutdown() {
+        System.out.println("\nGraceful shutdown initiated...");
+        if (autoscaler != null) {
+            autoscaler.stop();
+        }
+        stopWorkers();
         if (executor != null) {
             executor.shutdown();
             try {
@@ -90,10 +224,29 @@ public class WorkerService {
                 executor.shutdownNow();
             }
         }
+        if (daemon != null) {
+            daemon.stop();
+        }
+        retention.stop();
+        aging.stop();
+        leases.stop();
+        timers.stop();
+        WakeupService.getInstance().stopListener();
+        JobStore.getInstance().close();
         deletePidFile();
         System.out.println("Workers shut down.");
     }
 
+    private static String workerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+
     private void writePidFile() throws IOException {
         String pid = String.valueOf(ProcessHandle.current().pid());
         Files.createDirectories(PID_FILE.getParent());
@@ -0,0 +1,158 @@
+package com.queuectl.worker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+
+import com.queuectl.service.ConfigService;
+import com.queuectl.service.JobStore;
+
+/**
+ * Grows and shrinks a worker pool between {@code min} and {@code max} workers. Every
+ * {@value #SAMPLE_MILLIS}ms it looks at the ready backlog (PENDING jobs and due retries and
+ * delayed jobs), how long its oldest job has been ready, how many workers are idle and how busy
+ * the host CPU is:
+ * <ul>
+ *   <li>It grows (by half the pool, at most the backlog) when every worker is busy, jobs are
+ *       waiting and the oldest has waited {@code autoscale-target-wait} (default 2s), unless CPU
+ *       use is at {@code autoscale-max-cpu} percent (default 90).</li>
+ *   <li>It shrinks (by half the idle workers) once workers have sat idle with nothing ready for
+ *       {@code autoscale-idle-time} (default 60s), and by one worker per step while the CPU is
+ *       over its limit.</li>
+ * </ul>
+ * The gap between the two conditions is the hysteresis; after any change the pool is left alone
+ * for {@code autoscale-cooldown} (default 10s) so the effect can show. Removed workers go
+ * through {@link JobWorker#stop()}: they finish the job in hand and hand back unstarted leases.
+ */
+public class Autoscaler {
+    private static final long SAMPLE_MILLIS = 2_000;
+
+    /** The pool being scaled. */
+    public interface Pool {
+        int size();
+
+        int busy();
+
+        void grow(int workers);
+
+        /** Stops {@code workers} workers, idle ones first. */
+        void shrink(int workers);
+    }
+
+    private final Pool pool;
+    private final int min;
+    private final int max;
+    private final JobStore jobStore = JobStore.getInstance();
+    private final ConfigService config = ConfigService.getInstance();
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private Thread thread;
+    private volatile boolean running = true;
+    private long lastChange;
+    private long idleSince = -1;
+
+    public Autoscaler(Pool pool, int min, int max) {
+        this.pool = pool;
+        this.min = min;
+        this.max = max;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        lastChange = System.currentTimeMillis();
+        thread = new Thread(this::loop, "queuectl-autoscaler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                Thread.sleep(SAMPLE_MILLIS);
+                step(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("[Autoscaler] Error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void step(long now) {
+        int size = pool.size();
+        int idle = Math.max(0, size - pool.busy());
+        long[] backlog = jobStore.readyBacklog(now);
+        int ready = (int) Math.min(Integer.MAX_VALUE, backlog[0]);
+        long waited = ready > 0 ? Math.max(0, now - backlog[1]) : 0;
+        double cpu = cpuLoad();
+        boolean overloaded = cpu >= config.getConfigAsInt("autoscale-max-cpu", 90) / 100.0;
+
+        if (idle > 0 && ready == 0) {
+            if (idleSince < 0) {
+                idleSince = now;
+            }
+        } else {
+            idleSince = -1;
+        }
+        if (now - lastChange < duration("autoscale-cooldown", Duration.ofSeconds(10))) {
+            return;
+        }
+
+        int target = size;
+        if (overloaded) {
+            target = size - 1;
+        } else if (idle == 0 && ready > 0 && waited >= duration("autoscale-target-wait", Duration.ofSeconds(2))) {
+            target = size + Math.min(ready, Math.max(1, size / 2));
+        } else if (idleSince >= 0 && now - idleSince >= duration("autoscale-idle-time", Duration.ofSeconds(60))) {
+            target = size - Math.max(1, idle / 2);
+            idleSince = now;
+        }
+        target = Math.max(min, Math.min(max, target));
+        if (target == size) {
+            return;
+        }
+
+        System.out.printf("[Autoscaler] %d -> %d workers (%d ready, oldest waiting %.1fs, %d idle, cpu %s)%n",
+                size, target, ready, waited / 1000.0, idle, cpu < 0 ? "n/a" : Math.round(cpu * 100) + "%");
+        if (target > size) {
+            pool.grow(target - size);
+        } else {
+            pool.shrink(size - target);
+        }
+        lastChange = now;
+    }
+
+    private long duration(String key, Duration fallback) {
+        return config.getConfigAsDuration(key, fallback).toMillis();
+    }
+
+    /**
+     * Host CPU use from 0 to 1, or the load average per core where the JVM cannot report it,
+     * or -1 if neither is known.
+     */
+    private double cpuLoad() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            @SuppressWarnings("deprecation")
+            double load = ((com.sun.management.OperatingSystemMXBean) os).getSystemCpuLoad();
+            if (load >= 0) {
+                return load;
+            }
+        }
+        double average = os.getSystemLoadAverage();
+        return average < 0 ? -1 : average / os.getAvailableProcessors();
+    }
+}
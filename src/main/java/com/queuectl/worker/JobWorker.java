@@ -1,32 +1,70 @@
 package com.queuectl.worker;
 
-import java.io.BufferedReader;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import com.queuectl.metrics.Metrics;
 import com.queuectl.model.Job;
 import com.queuectl.model.JobState;
+import com.queuectl.service.CompletionWriter;
 import com.queuectl.service.ConfigService;
 import com.queuectl.service.JobStore;
+import com.queuectl.service.LogStore;
+import com.queuectl.service.WakeupService;
 
 public class JobWorker implements Runnable {
+    // Upper bound on how long an idle worker parks without any wakeup, in case a ping was lost.
+    private static final long MAX_IDLE_MILLIS = 30_000;
+    private static final int DEFAULT_TAIL_BYTES = 64 * 1024;
+    // How long to let the gobblers drain what a finished process left in its pipes.
+    private static final long DRAIN_MILLIS = 5_000;
+
+    private final String workerId;
     private final JobStore jobStore;
     private final ConfigService configService;
+    private final WakeupService wakeup;
+    private final Metrics metrics = Metrics.getInstance();
+    private final LogStore logStore = LogStore.getInstance();
+    private final QueueScheduler scheduler = QueueScheduler.getInstance();
+    private final CompletionWriter completions = CompletionWriter.getInstance();
+    private final ThreadFactory ioThreads;
+    private final Semaphore slots;
+    private final Deque<Job> leased = new ArrayDeque<>();
     private volatile boolean running = true;
+    private volatile boolean busy;
 
-    public JobWorker() {
+    /**
+     * @param ioThreads creates the threads that drain a job's output
+     * @param slots shared limit on concurrently running jobs, or null for no limit
+     */
+    public JobWorker(String workerId, ThreadFactory ioThreads, Semaphore slots) {
+        this.workerId = workerId;
+        this.ioThreads = ioThreads;
+        this.slots = slots;
         this.jobStore = JobStore.getInstance();
-        this.configService = new ConfigService();
+        this.configService = ConfigService.getInstance();
+        this.wakeup = WakeupService.getInstance();
     }
 
     public void stop() {
         this.running = false;
+        wakeup.signal();
+    }
+
+    /**
+     * Whether this worker is running a job right now.
+     */
+    public boolean isBusy() {
+        return busy;
     }
 
     @Override
@@ -34,11 +72,20 @@ public class JobWorker implements Runnable {
         System.out.printf("[Worker %s] Starting...%n", Thread.currentThread().getName());
         while (running && !Thread.currentThread().isInterrupted()) {
             try {
-                Job job = jobStore.findAndLockNextJob();
+                long seen = wakeup.generation();
+                Job job = nextJobWithinLimit();
                 if (job != null) {
-                    executeJob(job);
-                } else {
-                    Thread.sleep(1000);
+                    busy = true;
+                    try {
+                        executeJob(job);
+                    } finally {
+                        busy = false;
+                        if (slots != null) {
+                            slots.release();
+                        }
+                    }
+                } else if (running) {
+                    wakeup.awaitWork(seen, System.currentTimeMillis() + MAX_IDLE_MILLIS);
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -48,63 +95,134 @@ public class JobWorker implements Runnable {
                         Thread.currentThread().getName(), e.getMessage());
             }
         }
+        releaseLeased();
         System.out.printf("[Worker %s] Stopping...%n", Thread.currentThread().getName());
     }
 
+    /**
+     * Takes a concurrency slot before claiming, so workers over the limit leave jobs in the
+     * queue for other processes instead of leasing them and waiting.
+     */
+    private Job nextJobWithinLimit() throws InterruptedException {
+        if (slots == null) {
+            return nextJob();
+        }
+        while (!slots.tryAcquire(1, TimeUnit.SECONDS)) {
+            if (!running) {
+                return null;
+            }
+        }
+        Job job = null;
+        try {
+            job = nextJob();
+            return job;
+        } finally {
+            if (job == null) {
+                slots.release();
+            }
+        }
+    }
+
+    private Job nextJob() {
+        if (leased.isEmpty()) {
+            int batchSize = Math.max(1, configService.getConfigAsInt("claim-batch-size", 1));
+            long started = System.nanoTime();
+            List<Job> claimed = scheduler.claim(workerId, batchSize);
+            metrics.recordClaim(System.nanoTime() - started, claimed, System.currentTimeMillis());
+            leased.addAll(claimed);
+        }
+        return leased.poll();
+    }
+
+    private void releaseLeased() {
+        if (!leased.isEmpty()) {
+            System.out.printf("[Worker %s] Returning %d unstarted job(s) to the queue.%n",
+                    Thread.currentThread().getName(), leased.size());
+            jobStore.releaseJobs(workerId, new ArrayList<>(leased));
+            leased.forEach(scheduler::finished);
+            leased.clear();
+        }
+    }
+
     private void executeJob(Job job) {
         System.out.printf("[Worker %s] Processing Job %s: %s%n",
                 Thread.currentThread().getName(), job.getId(), job.getCommand());
 
         Process process = null;
-        StringBuilder output = new StringBuilder();
-        Path logPath = Paths.get(System.getProperty("user.home"), ".queuectl", "logs", job.getId() + ".log");
+        long started = System.nanoTime();
+        boolean timedOut = false;
+        OutputTail output = new OutputTail(configService.getConfigAsInt("output-tail-bytes", DEFAULT_TAIL_BYTES));
+        StringBuilder notes = new StringBuilder();
 
         try {
-            Files.createDirectories(logPath.getParent());
-            try (FileWriter logWriter = new FileWriter(logPath.toFile(), true)) {
+            try (LogStore.AttemptLog log = logStore.open(job.getId())) {
 
-                logWriter.write(String.format("%n--- ATTEMPT %d at %s ---%n",
-                        job.getAttempts(), new Date()));
+                log.write(String.format("%n--- ATTEMPT %d at %s ---%n", job.getAttempts(), new Date()));
 
                 ProcessBuilder pb = new ProcessBuilder("sh", "-c", job.getCommand());
                 process = pb.start();
 
-                StreamGobbler stdOutGobbler = new StreamGobbler(process.getInputStream(), logWriter, output, "");
-                StreamGobbler stdErrGobbler = new StreamGobbler(process.getErrorStream(), logWriter, output, "[ERROR] ");
+                StreamGobbler stdOutGobbler = new StreamGobbler(process.getInputStream(), log, output, "");
+                StreamGobbler stdErrGobbler = new StreamGobbler(process.getErrorStream(), log, output, "[ERROR] ");
 
-                Thread outThread = new Thread(stdOutGobbler);
-                Thread errThread = new Thread(stdErrGobbler);
+                Thread outThread = ioThreads.newThread(stdOutGobbler);
+                Thread errThread = ioThreads.newThread(stdErrGobbler);
                 outThread.start();
                 errThread.start();
                 
                 boolean finished = process.waitFor(job.getTimeout(), TimeUnit.SECONDS);
+                if (!finished) {
+                    // Kill first, children included: the gobblers only see EOF once nothing holds the pipes.
+                    process.descendants().forEach(ProcessHandle::destroyForcibly);
+                    process.destroyForcibly();
+                }
 
-                outThread.join(1000); 
-                errThread.join(1000);
-
-                job.setOutput(output.toString().trim());
+                outThread.join(DRAIN_MILLIS);
+                errThread.join(DRAIN_MILLIS);
 
                 if (!finished) {
-                    process.destroyForcibly();
-                    job.setOutput(output.append(String.format("%n[ERROR] Job timed out after %d seconds.", job.getTimeout())).toString());
+                    timedOut = true;
+                    notes.append(String.format("%n[ERROR] Job timed out after %d seconds.", job.getTimeout()));
                     handleFailure(job);
                 } else if (process.exitValue() == 0) {
                     job.setState(JobState.COMPLETED);
                     System.out.printf("[Worker %s] Job %s COMPLETED%n", Thread.currentThread().getName(), job.getId());
                 } else {
-                    job.setOutput(output.append(String.format("%n[ERROR] Exited with code %d.", process.exitValue())).toString());
+                    notes.append(String.format("%n[ERROR] Exited with code %d.", process.exitValue()));
                     handleFailure(job);
                 }
             }
         } catch (Exception e) {
-            job.setOutput(output.append("\n[ERROR] Execution failed: ").append(e.getMessage()).toString());
+            notes.append("\n[ERROR] Execution failed: ").append(e.getMessage());
             handleFailure(job);
         } finally {
             if (process != null && process.isAlive()) {
                 process.destroyForcibly();
             }
+            job.setOutput(output.toString().trim() + notes);
+            metrics.recordExecution(job, System.nanoTime() - started, outcome(job.getState()), timedOut);
             job.setUpdatedAt(System.currentTimeMillis());
-            jobStore.updateJob(job);
+            // Blocks until the batch holding this outcome has committed.
+            if (!completions.complete(job)) {
+                // Reaped while we ran (stalled past the lease); whoever holds it now decides.
+                System.err.printf("[Worker %s] Lost the lease on job %s; its result was discarded.%n",
+                        Thread.currentThread().getName(), job.getId());
+            }
+            scheduler.finished(job);
+            if (job.getState() == JobState.FAILED) {
+                wakeup.signalAt(job.getNextExecutionTime());
+            }
+        }
+    }
+
+    private static Metrics.Outcome outcome(JobState state) {
+        switch (state) {
+            case COMPLETED:
+                return Metrics.Outcome.COMPLETED;
+            case DEAD:
+                return Metrics.Outcome.DEAD;
+            default:
+                return Metrics.Outcome.RETRY;
         }
     }
 
@@ -121,7 +239,7 @@ public class JobWorker implements Runnable {
                     Thread.currentThread().getName(), job.getId());
         } else {
             job.setState(JobState.FAILED);
-            long backoffBase = configService.getConfigAsInt("backoff-base", 2);
+            long backoffBase = configService.getConfigAsLong("backoff-base", 2);
             long delayMillis = (long) Math.pow(backoffBase, job.getAttempts()) * 1000;
             job.setNextExecutionTime(System.currentTimeMillis() + delayMillis);
             System.out.printf("[Worker %s] Job %s FAILED. Retrying in %dms.%n",
@@ -129,35 +247,71 @@ public class JobWorker implements Runnable {
         }
     }
 
+    /**
+     * Copies one output stream of a job to its log in large byte chunks and feeds the
+     * in-memory tail. Prefixed streams get the prefix at the start of every line.
+     */
     private static class StreamGobbler implements Runnable {
-        private InputStream inputStream;
-        private FileWriter logWriter;
-        private StringBuilder output;
-        private String prefix;
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final InputStream inputStream;
+        private final LogStore.AttemptLog log;
+        private final OutputTail tail;
+        private final byte[] prefix;
+        private boolean atLineStart = true;
 
-        public StreamGobbler(InputStream inputStream, FileWriter logWriter, StringBuilder output, String prefix) {
+        public StreamGobbler(InputStream inputStream, LogStore.AttemptLog log, OutputTail tail, String prefix) {
             this.inputStream = inputStream;
-            this.logWriter = logWriter;
-            this.output = output;
-            this.prefix = prefix;
+            this.log = log;
+            this.tail = tail;
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
         }
 
         @Override
         public void run() {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String logLine = prefix + line;
-                    synchronized (output) {
-                        output.append(logLine).append("\n");
-                    }
-                    synchronized (logWriter) {
-                        logWriter.write(logLine + "\n");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] prefixed = prefix.length == 0 ? null : new byte[BUFFER_SIZE];
+            try (InputStream in = inputStream) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    if (prefixed == null) {
+                        write(buffer, n);
+                    } else {
+                        prefixed = addPrefixes(buffer, n, prefixed);
                     }
                 }
             } catch (Exception e) {
                 System.err.println("LogGobbler error: " + e.getMessage());
             }
         }
+
+        private byte[] addPrefixes(byte[] buffer, int length, byte[] out) throws IOException {
+            int lines = 1;
+            for (int i = 0; i < length; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+            int needed = length + prefix.length * lines;
+            if (out.length < needed) {
+                out = new byte[needed];
+            }
+            int pos = 0;
+            for (int i = 0; i < length; i++) {
+                if (atLineStart) {
+                    System.arraycopy(prefix, 0, out, pos, prefix.length);
+                    pos += prefix.length;
+                }
+                out[pos++] = buffer[i];
+                atLineStart = buffer[i] == '\n';
+            }
+            write(out, pos);
+            return out;
+        }
+
+        private void write(byte[] bytes, int length) throws IOException {
+            tail.append(bytes, 0, length);
+            log.write(bytes, 0, length);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.queuectl.worker;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size ring buffer holding the last bytes a job wrote. Only this tail is kept in memory
+ * and stored in {@code jobs.output}; the full output is written to log segments by
+ * {@link com.queuectl.service.LogStore}.
+ */
+final class OutputTail {
+    private final byte[] ring;
+    private long total;
+
+    OutputTail(int capacity) {
+        this.ring = new byte[Math.max(1, capacity)];
+    }
+
+    synchronized void append(byte[] bytes, int offset, int length) {
+        if (length >= ring.length) {
+            // Only the last ring.length bytes can survive.
+            offset += length - ring.length;
+            total += length - ring.length;
+            length = ring.length;
+        }
+        int start = (int) (total % ring.length);
+        int first = Math.min(length, ring.length - start);
+        System.arraycopy(bytes, offset, ring, start, first);
+        System.arraycopy(bytes, offset + first, ring, 0, length - first);
+        total += length;
+    }
+
+    /**
+     * Decodes the retained tail as UTF-8, noting how much was dropped. A character cut in half at
+     * the start of the window decodes as a replacement character.
+     */
+    @Override
+    public synchronized String toString() {
+        int kept = (int) Math.min(total, ring.length);
+        byte[] bytes = new byte[kept];
+        int start = (int) ((total - kept) % ring.length);
+        int first = Math.min(kept, ring.length - start);
+        System.arraycopy(ring, start, bytes, 0, first);
+        System.arraycopy(ring, 0, bytes, first, kept - first);
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer text;
+        try {
+            text = decoder.decode(ByteBuffer.wrap(bytes));
+        } catch (java.nio.charset.CharacterCodingException e) {
+            text = CharBuffer.wrap(new String(bytes, StandardCharsets.UTF_8));
+        }
+        long dropped = total - kept;
+        return dropped > 0
+                ? String.format("[... %d earlier bytes omitted, see logs ...]%n%s", dropped, text)
+                : text.toString();
+    }
+}
@@ -0,0 +1,201 @@
+package com.queuectl.worker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.queuectl.model.Job;
+import com.queuectl.service.ConfigService;
+import com.queuectl.service.GroupLimiter;
+import com.queuectl.service.JobStore;
+import com.queuectl.service.LeaseService;
+import com.queuectl.service.WakeupService;
+
+/**
+ * Shares a worker process between named queues by deficit round robin. Each time the rotation
+ * reaches a queue, the queue earns its weight ({@code queue-<name>-weight}, default 1) times the
+ * claim batch size in credit and may claim one job per whole credit before the rotation moves
+ * on; a queue found empty loses its credit. So a queue of weight 3 gets three jobs for every one
+ * of a weight 1 queue while both have work, a busy queue cannot starve the others however many
+ * jobs or however high a priority it holds, and each claim still leases a full batch. Priority
+ * still orders jobs within a queue.
+ *
+ * {@code queue-<name>-max-jobs} caps how many jobs of a queue this process holds at once,
+ * leased or running (0, the default, means no cap). Claims also respect job group limits
+ * through {@link GroupLimiter}. Workers report back through {@link #finished(Job)}.
+ *
+ * Only the choice of queue is made under {@link #lock}: it reserves the credit and cap room for the
+ * claim, the database claim runs outside it, and whatever was not claimed is handed back.
+ */
+public class QueueScheduler {
+    // How long the list of queues with waiting jobs is reused before it is read again.
+    private static final long REFRESH_MILLIS = 1_000;
+    private static QueueScheduler instance;
+
+    private final JobStore jobStore = JobStore.getInstance();
+    private final ConfigService config = ConfigService.getInstance();
+    private final GroupLimiter groups = GroupLimiter.getInstance();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Integer> deficits = new HashMap<>();
+    private final Map<String, Integer> held = new HashMap<>();
+    // Config keys per queue, built once instead of on every claim.
+    private final Map<String, String> weightKeys = new HashMap<>();
+    private final Map<String, String> maxJobsKeys = new HashMap<>();
+    private List<String> queues = Collections.emptyList();
+    private volatile long refreshedAt;
+    private int next;
+
+    /** A queue picked for one claim, with the credit and room reserved for it. */
+    private static final class Pick {
+        final String queue;
+        final int want;
+        final int visited;
+
+        Pick(String queue, int want, int visited) {
+            this.queue = queue;
+            this.want = want;
+            this.visited = visited;
+        }
+    }
+
+    QueueScheduler() {}
+
+    public static synchronized QueueScheduler getInstance() {
+        if (instance == null) {
+            instance = new QueueScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Claims up to {@code limit} jobs from the next queue in the rotation that has any ready
+     * and is under its cap, or returns an empty list after one full round without finding work.
+     */
+    public List<Job> claim(String workerId, int limit) {
+        long now = System.currentTimeMillis();
+        List<String> waiting = now - refreshedAt >= REFRESH_MILLIS ? jobStore.listWaitingQueues() : null;
+        int visited = 0;
+        Pick pick;
+        while ((pick = pick(limit, visited, waiting, now)) != null) {
+            waiting = null;
+            visited = pick.visited;
+            List<Job> jobs = Collections.emptyList();
+            try {
+                jobs = jobStore.claimBatch(workerId, pick.queue, pick.want, LeaseService.leaseMillis(), groups);
+            } finally {
+                settle(pick, jobs.size());
+            }
+            if (!jobs.isEmpty()) {
+                return jobs;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Frees the cap and group slots of a job claimed through {@link #claim}, once it has run or
+     * been released.
+     */
+    public void finished(Job job) {
+        groups.finished(job);
+        release(job.getQueue(), 1);
+    }
+
+    /**
+     * Moves the rotation to the next queue that may claim, reserving its credit and room, or
+     * returns null once {@code visited} covers every queue.
+     */
+    private Pick pick(int limit, int visited, List<String> waiting, long now) {
+        lock.lock();
+        try {
+            if (waiting != null) {
+                refresh(waiting, now);
+            }
+            for (; visited < queues.size(); visited++) {
+                String queue = queues.get(next);
+                int credit = deficits.getOrDefault(queue, 0);
+                if (credit < 1) {
+                    credit += weight(queue) * limit;
+                }
+                int want = Math.min(limit, Math.min(credit, room(queue)));
+                if (want > 0) {
+                    deficits.put(queue, credit - want);
+                    held.merge(queue, want, Integer::sum);
+                    if (credit - want < 1) {
+                        next = (next + 1) % queues.size();
+                    }
+                    return new Pick(queue, want, visited + 1);
+                }
+                // A capped queue does not bank credit for later bursts.
+                deficits.put(queue, 0);
+                next = (next + 1) % queues.size();
+            }
+            // Nothing anywhere: look for new queues on the next call.
+            refreshedAt = 0;
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands back what a pick reserved but did not claim.
+     */
+    private void settle(Pick pick, int claimed) {
+        lock.lock();
+        try {
+            int unused = pick.want - claimed;
+            if (claimed == 0) {
+                // An idle queue does not bank credit either, and the rotation moves past it.
+                deficits.put(pick.queue, 0);
+                if (!queues.isEmpty() && queues.get(next).equals(pick.queue)) {
+                    next = (next + 1) % queues.size();
+                }
+            } else if (unused > 0) {
+                deficits.merge(pick.queue, unused, Integer::sum);
+            }
+            release(pick.queue, unused);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(String queue, int count) {
+        if (count <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            boolean wasFull = room(queue) == 0;
+            held.computeIfPresent(queue, (name, current) -> current > count ? current - count : null);
+            if (wasFull) {
+                // Workers that found this queue capped may be parked with nothing else to do.
+                WakeupService.getInstance().signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refresh(List<String> waiting, long now) {
+        String current = queues.isEmpty() ? null : queues.get(next);
+        queues = new ArrayList<>(waiting);
+        deficits.keySet().retainAll(queues);
+        // Carry on from the same queue so a refresh does not restart the rotation.
+        int index = current == null ? -1 : queues.indexOf(current);
+        next = index >= 0 ? index : 0;
+        refreshedAt = now;
+    }
+
+    private int weight(String queue) {
+        return Math.max(1, config.getConfigAsInt(weightKeys.computeIfAbsent(queue, q -> "queue-" + q + "-weight"), 1));
+    }
+
+    private int room(String queue) {
+        int cap = config.getConfigAsInt(maxJobsKeys.computeIfAbsent(queue, q -> "queue-" + q + "-max-jobs"), 0);
+        return cap > 0 ? Math.max(0, cap - held.getOrDefault(queue, 0)) : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,79 @@
+package com.queuectl.worker;
+
+import com.queuectl.service.JobStore;
+import com.queuectl.service.WakeupService;
+
+/**
+ * Drives a {@link TimerWheel} for the worker process. It is seeded from
+ * {@code jobs.next_execution_time} at startup, receives new deadlines through
+ * {@link WakeupService#signalAt(long)}, and wakes idle workers the moment delayed work is due.
+ */
+public class TimerService {
+    private static final long TICK_MILLIS = 10;
+
+    private final TimerWheel wheel = new TimerWheel(TICK_MILLIS, System.currentTimeMillis());
+    private final WakeupService wakeup = WakeupService.getInstance();
+    private Thread driver;
+    private volatile boolean running;
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        int loaded = JobStore.getInstance().forEachDelayedDeadline(this::schedule);
+        wakeup.setScheduler(this::schedule);
+        driver = new Thread(this::drive, "queuectl-timers");
+        driver.setDaemon(true);
+        driver.start();
+        System.out.printf("Loaded %d delayed job timer(s).%n", loaded);
+    }
+
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            wakeup.setScheduler(null);
+            current = driver;
+            notifyAll();
+        }
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void schedule(long deadlineMillis) {
+        boolean due;
+        synchronized (this) {
+            due = wheel.schedule(deadlineMillis);
+            notifyAll();
+        }
+        if (due) {
+            wakeup.signal();
+        }
+    }
+
+    private void drive() {
+        while (running) {
+            int expired;
+            synchronized (this) {
+                expired = wheel.advance(System.currentTimeMillis());
+            }
+            if (expired > 0) {
+                wakeup.signal();
+            }
+            try {
+                synchronized (this) {
+                    long wait = wheel.nextWakeMillis() - System.currentTimeMillis();
+                    if (wheel.size() == 0) {
+                        wait(0);
+                    } else if (wait > 0) {
+                        wait(wait);
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
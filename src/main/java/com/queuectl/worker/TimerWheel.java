@@ -0,0 +1,186 @@
+package com.queuectl.worker;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timer wheel holding the due times of delayed work (FAILED retries and
+ * SCHEDULED jobs). Scheduling is O(1); timers further out sit in coarser levels and are
+ * cascaded down as the wheel turns, so hundreds of thousands of timers cost no scanning.
+ *
+ * Level {@code l} has {@value #SLOTS} slots of {@code tickMillis * SLOTS^l} each; deadlines
+ * beyond the top level wait in an overflow bucket that is re-sorted once per top-level turn.
+ * Not thread-safe on its own; {@link TimerService} serializes access.
+ */
+final class TimerWheel {
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final LongBucket[][] levels = new LongBucket[LEVELS][SLOTS];
+    private final int[] levelSizes = new int[LEVELS];
+    private final LongBucket overflow = new LongBucket();
+    private long currentTick;
+    private int size;
+
+    TimerWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        for (LongBucket[] level : levels) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new LongBucket();
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a timer. Returns true if the deadline is already due.
+     */
+    boolean schedule(long deadlineMillis) {
+        long tick = ceilDiv(deadlineMillis, tickMillis);
+        if (tick <= currentTick) {
+            return true;
+        }
+        place(tick);
+        size++;
+        return false;
+    }
+
+    /**
+     * Turns the wheel up to {@code nowMillis} and returns how many timers expired.
+     */
+    int advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return 0;
+        }
+        int expired = 0;
+        while (currentTick < targetTick) {
+            // Jump straight to the next cascade point of the lowest non-empty level.
+            long skipTo = nextBoundary(emptyLowLevels()) - 1;
+            if (skipTo > currentTick) {
+                currentTick = Math.min(skipTo, targetTick);
+                if (currentTick == targetTick) {
+                    break;
+                }
+            }
+            currentTick++;
+            cascade();
+            LongBucket slot = levels[0][(int) (currentTick & SLOT_MASK)];
+            expired += slot.size;
+            levelSizes[0] -= slot.size;
+            slot.clear();
+        }
+        size -= expired;
+        return expired;
+    }
+
+    /**
+     * Wall-clock time at which {@link #advance} next has something to do: the next non-empty
+     * slot of the finest level, or the next point where a coarser level cascades.
+     */
+    long nextWakeMillis() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        int level = emptyLowLevels();
+        if (level == LEVELS) {
+            return nextBoundary(LEVELS) * tickMillis;
+        }
+        // The first non-empty slot of that level is expired (level 0) or cascaded (higher levels)
+        // at the start of its window; past the end of this turn, the next level up cascades first.
+        int shift = SLOT_BITS * level;
+        long window = (currentTick >>> shift) + 1;
+        while ((window & SLOT_MASK) != 0) {
+            if (levels[level][(int) (window & SLOT_MASK)].size > 0) {
+                return (window << shift) * tickMillis;
+            }
+            window++;
+        }
+        return (window << shift) * tickMillis;
+    }
+
+    private long nextBoundary(int level) {
+        return (currentTick | ((1L << (SLOT_BITS * level)) - 1)) + 1;
+    }
+
+    private int emptyLowLevels() {
+        int level = 0;
+        while (level < LEVELS && levelSizes[level] == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            LongBucket slot = levels[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            levelSizes[level] -= slot.size;
+            redistribute(slot);
+        }
+        if ((currentTick & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+            redistribute(overflow);
+        }
+    }
+
+    private void redistribute(LongBucket bucket) {
+        if (bucket.size == 0) {
+            return;
+        }
+        long[] ticks = Arrays.copyOf(bucket.values, bucket.size);
+        bucket.clear();
+        for (long tick : ticks) {
+            if (tick <= currentTick) {
+                // Lands in the slot expired right after this cascade.
+                levels[0][(int) (currentTick & SLOT_MASK)].add(tick);
+                levelSizes[0]++;
+            } else {
+                place(tick);
+            }
+        }
+    }
+
+    private void place(long tick) {
+        long delta = tick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (SLOT_BITS * (level + 1)))) {
+                levels[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)].add(tick);
+                levelSizes[level]++;
+                return;
+            }
+        }
+        overflow.add(tick);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    private static final class LongBucket {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+            if (values.length > 64) {
+                values = new long[4];
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.queuectl.worker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Chooses the kind of thread that runs workers and their output gobblers. On Java 21+ the
+ * {@code auto} and {@code virtual} modes use virtual threads, so a large {@code --count} costs
+ * heap-allocated stacks instead of OS threads; older runtimes fall back to platform threads.
+ * On 19 and 20 {@code Thread.ofVirtual} exists but fails without {@code --enable-preview}, so
+ * {@code auto} also falls back there while an explicit {@code virtual} fails to start.
+ * Virtual threads are reached reflectively so the build still targets Java 11.
+ */
+public final class WorkerThreads {
+    public static final String MODE_AUTO = "auto";
+    public static final String MODE_VIRTUAL = "virtual";
+    public static final String MODE_PLATFORM = "platform";
+
+    private static final Method OF_VIRTUAL = lookupOfVirtual();
+    private static final boolean VIRTUAL_USABLE = probeVirtual();
+
+    private WorkerThreads() {}
+
+    public static boolean virtualThreadsAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Whether {@code mode} resolves to virtual threads on this runtime. {@code auto} only does
+     * when they can actually be created.
+     */
+    public static boolean useVirtual(String mode) {
+        if (!virtualThreadsAvailable() || MODE_PLATFORM.equalsIgnoreCase(mode)) {
+            return false;
+        }
+        return MODE_VIRTUAL.equalsIgnoreCase(mode) || VIRTUAL_USABLE;
+    }
+
+    /**
+     * Factory for the long-lived worker threads.
+     */
+    public static ThreadFactory workerFactory(String mode) {
+        return useVirtual(mode) ? virtualFactory("worker-") : Executors.defaultThreadFactory();
+    }
+
+    /**
+     * Factory for the short-lived threads that drain a job's stdout and stderr.
+     */
+    public static ThreadFactory ioFactory(String mode) {
+        return useVirtual(mode) ? virtualFactory("gobbler-") : Thread::new;
+    }
+
+    private static ThreadFactory virtualFactory(String prefix) {
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Virtual threads unavailable: " + e.getCause().getMessage(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean probeVirtual() {
+        if (OF_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            virtualFactory("probe-");
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private static Method lookupOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}